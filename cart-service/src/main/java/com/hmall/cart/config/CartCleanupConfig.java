@@ -0,0 +1,11 @@
+package com.hmall.cart.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(CartCleanupProperties.class)
+public class CartCleanupConfig {
+}
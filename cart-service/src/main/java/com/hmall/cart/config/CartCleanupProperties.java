@@ -0,0 +1,15 @@
+package com.hmall.cart.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "hm.cart.cleanup")
+public class CartCleanupProperties {
+    /**
+     * 下单清理购物车事件的幂等记录保留时间，需长于交易服务发件箱的最长重试时间
+     */
+    private Duration retention = Duration.ofDays(7);
+}
@@ -0,0 +1,9 @@
+package com.hmall.cart.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(CartStoreProperties.class)
+public class CartStoreConfig {
+}
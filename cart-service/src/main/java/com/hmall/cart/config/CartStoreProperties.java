@@ -0,0 +1,31 @@
+package com.hmall.cart.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "hm.cart.store")
+public class CartStoreProperties {
+    /**
+     * 是否启用内存购物车，默认关闭，每次读写数据库
+     */
+    private boolean enabled = false;
+    /**
+     * 异步回写数据库的时间窗口
+     */
+    private Duration flushInterval = Duration.ofMillis(500);
+    /**
+     * 每次回写最多处理的用户数
+     */
+    private int flushBatchSize = 200;
+    /**
+     * 内存中最多保留的用户购物车数量
+     */
+    private long maximumUsers = 100000;
+    /**
+     * 用户购物车多久未访问后从内存中移除，下次访问时从数据库重新加载
+     */
+    private Duration expireAfterAccess = Duration.ofMinutes(30);
+}
@@ -1,6 +1,7 @@
 package com.hmall.cart.controller;
 
 
+import com.hmall.api.dto.CartItemsDeleteDTO;
 import com.hmall.cart.domain.dto.CartFormDTO;
 import com.hmall.cart.domain.po.Cart;
 import com.hmall.cart.domain.vo.CartVO;
@@ -31,13 +32,13 @@ public class CartController {
     @ApiOperation("更新购物车数据")
     @PutMapping
     public void updateCart(@RequestBody Cart cart) {
-        cartService.updateById(cart);
+        cartService.updateCart(cart);
     }
 
     @ApiOperation("删除购物车中商品")
     @DeleteMapping("{id}")
     public void deleteCartItem(@Param("购物车条目id") @PathVariable("id") Long id) {
-        cartService.removeById(id);
+        cartService.removeCartItem(id);
     }
 
     @ApiOperation("查询购物车列表")
@@ -53,6 +54,18 @@ public class CartController {
         cartService.removeByItemIds(ids);
     }
 
+    @ApiOperation("删除指定用户购物车中的商品，仅限服务间调用，网关不对外暴露")
+    @DeleteMapping("/users/{userId}")
+    public void deleteUserCartItems(@PathVariable("userId") Long userId, @RequestParam("itemIds") List<Long> itemIds) {
+        cartService.removeByItemIds(userId, itemIds);
+    }
+
+    @ApiOperation("批量删除多个用户购物车中的商品，仅限服务间调用，网关不对外暴露")
+    @PostMapping("/batch-delete")
+    public void deleteCartItemsInBatch(@RequestBody List<CartItemsDeleteDTO> requests) {
+        cartService.removeByItemIds(requests);
+    }
+
     // 添加一个测试接口
     @GetMapping("/test")
     public String test() {
@@ -0,0 +1,36 @@
+package com.hmall.cart.domain.po;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * <p>
+ * 已处理的下单清理购物车事件，按幂等键去重
+ * </p>
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Accessors(chain = true)
+@TableName("cart_cleanup_record")
+public class CartCleanupRecord implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 事件的幂等键，由交易服务生成
+     */
+    @TableId(value = "event_key", type = IdType.INPUT)
+    private String eventKey;
+
+    /**
+     * 处理时间
+     */
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,29 @@
+package com.hmall.cart.job;
+
+import com.hmall.cart.config.CartCleanupProperties;
+import com.hmall.cart.mapper.CartCleanupRecordMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 定期删除过期的下单清理购物车幂等记录
+ */
+@Component
+@RequiredArgsConstructor
+public class CartCleanupRecordPurgeJob {
+
+    private static final int PURGE_LIMIT = 1000;
+
+    private final CartCleanupRecordMapper recordMapper;
+    private final CartCleanupProperties properties;
+
+    @Scheduled(cron = "${hm.cart.cleanup.purge-cron:0 37 * * * ?}")
+    public void purge() {
+        long retentionSeconds = properties.getRetention().getSeconds();
+        int deleted;
+        do {
+            deleted = recordMapper.purge(retentionSeconds, PURGE_LIMIT);
+        } while (deleted >= PURGE_LIMIT);
+    }
+}
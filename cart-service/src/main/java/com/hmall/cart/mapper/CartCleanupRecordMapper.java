@@ -0,0 +1,30 @@
+package com.hmall.cart.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.hmall.cart.domain.po.CartCleanupRecord;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * <p>
+ * 下单清理购物车事件的幂等记录 Mapper 接口
+ * </p>
+ */
+public interface CartCleanupRecordMapper extends BaseMapper<CartCleanupRecord> {
+
+    /**
+     * 登记事件，需与删除购物车在同一个事务中执行
+     *
+     * @param eventKey 幂等键
+     * @return 1-首次处理，0-已处理过
+     */
+    @Insert("INSERT IGNORE INTO cart_cleanup_record (event_key) VALUES (#{eventKey})")
+    int insertIgnore(@Param("eventKey") String eventKey);
+
+    /**
+     * 删除超过保留时间的记录，以数据库时间为准
+     */
+    @Delete("DELETE FROM cart_cleanup_record WHERE create_time < NOW() - INTERVAL #{retentionSeconds} SECOND LIMIT #{limit}")
+    int purge(@Param("retentionSeconds") long retentionSeconds, @Param("limit") int limit);
+}
@@ -2,7 +2,9 @@ package com.hmall.cart.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.hmall.cart.domain.po.Cart;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
 /**
@@ -17,4 +19,40 @@ public interface CartMapper extends BaseMapper<Cart> {
 
     @Update("UPDATE cart SET num = num + 1 WHERE user_id = #{userId} AND item_id = #{itemId}")
     void updateNum(@Param("itemId") Long itemId, @Param("userId") Long userId);
+
+    /**
+     * 创建用户的加购锁行，已存在时忽略。
+     * 只在用户第一次加购、lockUser 查不到锁行时调用，在加购事务之外单独提交，加购事务中不会插入锁行
+     */
+    @Insert("INSERT IGNORE INTO cart_user (user_id) VALUES (#{userId})")
+    int insertUserIgnore(@Param("userId") Long userId);
+
+    /**
+     * 锁住用户的加购锁行，直到事务结束
+     *
+     * @return 用户id，锁行不存在时返回null
+     */
+    @Select("SELECT user_id FROM cart_user WHERE user_id = #{userId} FOR UPDATE")
+    Long lockUser(@Param("userId") Long userId);
+
+    /**
+     * 加购：条目不存在且购物车未满时插入，已存在时数量加1，依赖 (user_id, item_id) 唯一索引。
+     * 调用方需在同一事务中先用 lockUser 锁住用户行，同一用户的加购串行执行，条目数的判断才准确
+     *
+     * @param cart     购物车条目
+     * @param maxLines 购物车最大条目数
+     * @return 影响行数：1-新增，2-数量加1，0-购物车已满
+     */
+    @Insert("INSERT INTO cart (user_id, item_id, num, name, spec, price, image) " +
+            "SELECT #{cart.userId}, #{cart.itemId}, 1, #{cart.name}, #{cart.spec}, #{cart.price}, #{cart.image} FROM DUAL " +
+            "WHERE (SELECT COUNT(*) FROM cart WHERE user_id = #{cart.userId}) < #{maxLines} " +
+            "OR EXISTS (SELECT 1 FROM cart WHERE user_id = #{cart.userId} AND item_id = #{cart.itemId}) " +
+            "ON DUPLICATE KEY UPDATE num = num + 1")
+    int upsertItem(@Param("cart") Cart cart, @Param("maxLines") int maxLines);
+
+    /**
+     * 按id覆盖购买数量，供内存购物车回写使用
+     */
+    @Update("UPDATE cart SET num = #{num}, update_time = #{updateTime} WHERE id = #{id}")
+    void updateNumById(Cart cart);
 }
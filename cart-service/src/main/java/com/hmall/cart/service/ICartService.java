@@ -1,6 +1,7 @@
 package com.hmall.cart.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.hmall.api.dto.CartItemsDeleteDTO;
 import com.hmall.cart.domain.dto.CartFormDTO;
 import com.hmall.cart.domain.po.Cart;
 import com.hmall.cart.domain.vo.CartVO;
@@ -22,5 +23,13 @@ public interface ICartService extends IService<Cart> {
 
     List<CartVO> queryMyCarts();
 
+    void updateCart(Cart cart);
+
+    void removeCartItem(Long id);
+
     void removeByItemIds(Collection<Long> itemIds);
+
+    void removeByItemIds(Long userId, Collection<Long> itemIds);
+
+    void removeByItemIds(List<CartItemsDeleteDTO> requests);
 }
@@ -3,19 +3,24 @@ package com.hmall.cart.service.impl;
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.hmall.api.client.ItemClient;
+import com.hmall.api.cache.ItemCache;
+import com.hmall.api.dto.CartItemsDeleteDTO;
 import com.hmall.api.dto.ItemDTO;
 import com.hmall.cart.domain.dto.CartFormDTO;
 import com.hmall.cart.domain.po.Cart;
 import com.hmall.cart.domain.vo.CartVO;
+import com.hmall.cart.mapper.CartCleanupRecordMapper;
 import com.hmall.cart.mapper.CartMapper;
 import com.hmall.cart.service.ICartService;
+import com.hmall.cart.store.CartStore;
 import com.hmall.common.exception.BizIllegalException;
 import com.hmall.common.utils.BeanUtils;
 import com.hmall.common.utils.CollUtils;
 import com.hmall.common.utils.UserContext;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.Collection;
 import java.util.List;
@@ -36,35 +41,62 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements ICartService {
 
-    private final ItemClient itemClient;
+    private final ItemCache itemCache;
+    private final ObjectProvider<CartStore> cartStore;
+    private final TransactionTemplate transactionTemplate;
+    private final CartCleanupRecordMapper cleanupRecordMapper;
 
     @Override
     public void addItem2Cart(CartFormDTO cartFormDTO) {
         // 1.获取登录用户
         Long userId = UserContext.getUser();
-
-        // 2.判断是否已经存在
-        if (checkItemExists(cartFormDTO.getItemId(), userId)) {
-            // 2.1.存在，则更新数量
-            baseMapper.updateNum(cartFormDTO.getItemId(), userId);
+        CartStore store = cartStore.getIfAvailable();
+        if (store != null) {
+            // 启用了内存购物车，变更异步回写
+            store.addItem(userId, cartFormDTO);
             return;
         }
-        // 2.2.不存在，判断是否超过购物车数量
-        checkCartsFull(userId);
 
-        // 3.新增购物车条目
-        // 3.1.转换PO
+        // 2.转换PO
         Cart cart = BeanUtils.copyBean(cartFormDTO, Cart.class);
-        // 3.2.保存当前用户
         cart.setUserId(userId);
-        // 3.3.保存到数据库
-        save(cart);
+
+        // 3.锁住用户行后，一条语句完成判断是否存在、是否超过购物车数量和写入
+        // 只用一条条件写入时，同一用户的并发加购会在 cart 表的间隙锁上互相死锁，所以先用用户行把加购串行化
+        if (!upsertLocked(cart)) {
+            // 4.用户第一次加购，锁行还不存在，单独提交创建后再加购
+            baseMapper.insertUserIgnore(userId);
+            if (!upsertLocked(cart)) {
+                throw new IllegalStateException("用户加购锁行不存在，userId：" + userId);
+            }
+        }
+    }
+
+    /**
+     * 在一个事务中锁住用户行并加购
+     *
+     * @return 用户的加购锁行不存在时返回false，没有写入
+     */
+    private boolean upsertLocked(Cart cart) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (baseMapper.lockUser(cart.getUserId()) == null) {
+                return false;
+            }
+            if (baseMapper.upsertItem(cart, CartStore.MAX_LINES) == 0) {
+                throw new BizIllegalException(StrUtil.format("用户购物车课程不能超过{}", CartStore.MAX_LINES));
+            }
+            return true;
+        }));
     }
 
     @Override
     public List<CartVO> queryMyCarts() {
         // 1.查询我的购物车列表
-        List<Cart> carts = lambdaQuery().eq(Cart::getUserId, UserContext.getUser()).list();
+        Long userId = UserContext.getUser();
+        CartStore store = cartStore.getIfAvailable();
+        List<Cart> carts = store != null
+                ? store.listCarts(userId)
+                : lambdaQuery().eq(Cart::getUserId, userId).list();
         if (CollUtils.isEmpty(carts)) {
             return CollUtils.emptyList();
         }
@@ -85,7 +117,8 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements IC
                 .map(CartVO::getItemId)
                 .collect(Collectors.toSet());
 
-        List<ItemDTO> items = itemClient.queryItemByIds(itemIds);
+        // 展示场景，允许返回略旧的库存，过期的商品在后台刷新
+        List<ItemDTO> items = itemCache.queryItemByIds(itemIds);
         if (CollUtils.isEmpty(items)) {
             return;
         }
@@ -103,29 +136,78 @@ public class CartServiceImpl extends ServiceImpl<CartMapper, Cart> implements IC
         }
     }
 
+    @Override
+    public void updateCart(Cart cart) {
+        CartStore store = cartStore.getIfAvailable();
+        if (store != null) {
+            store.updateNum(UserContext.getUser(), cart.getId(), cart.getNum());
+            return;
+        }
+        updateById(cart);
+    }
+
+    @Override
+    public void removeCartItem(Long id) {
+        CartStore store = cartStore.getIfAvailable();
+        if (store != null) {
+            store.removeById(UserContext.getUser(), id);
+            return;
+        }
+        removeById(id);
+    }
+
     @Override
     public void removeByItemIds(Collection<Long> itemIds) {
+        removeByItemIds(UserContext.getUser(), itemIds);
+    }
+
+    @Override
+    public void removeByItemIds(Long userId, Collection<Long> itemIds) {
+        CartStore store = cartStore.getIfAvailable();
+        if (store != null) {
+            store.removeItems(userId, itemIds);
+            return;
+        }
         // 1.构建删除条件，userId和itemId
         QueryWrapper<Cart> queryWrapper = new QueryWrapper<Cart>();
         queryWrapper.lambda()
-                .eq(Cart::getUserId, UserContext.getUser())
+                .eq(Cart::getUserId, userId)
                 .in(Cart::getItemId, itemIds);
         // 2.删除
         remove(queryWrapper);
     }
 
-    private void checkCartsFull(Long userId) {
-        int count = lambdaQuery().eq(Cart::getUserId, userId).count();
-        if (count >= 10) {
-            throw new BizIllegalException(StrUtil.format("用户购物车课程不能超过{}", 10));
+    @Override
+    public void removeByItemIds(List<CartItemsDeleteDTO> requests) {
+        List<CartItemsDeleteDTO> valid = requests.stream()
+                .filter(r -> r.getUserId() != null && CollUtils.isNotEmpty(r.getItemIds()))
+                .collect(Collectors.toList());
+        if (valid.isEmpty()) {
+            return;
         }
-    }
-
-    private boolean checkItemExists(Long itemId, Long userId) {
-        int count = lambdaQuery()
-                .eq(Cart::getUserId, userId)
-                .eq(Cart::getItemId, itemId)
-                .count();
-        return count > 0;
+        transactionTemplate.executeWithoutResult(status -> {
+            // 1.按幂等键去重，重复投递的事件不再删除，以免删掉用户之后重新加购的商品
+            List<CartItemsDeleteDTO> fresh = valid.stream()
+                    .filter(r -> r.getEventKey() == null || cleanupRecordMapper.insertIgnore(r.getEventKey()) > 0)
+                    .collect(Collectors.toList());
+            if (fresh.isEmpty()) {
+                return;
+            }
+            CartStore store = cartStore.getIfAvailable();
+            if (store != null) {
+                for (CartItemsDeleteDTO r : fresh) {
+                    store.removeItems(r.getUserId(), r.getItemIds());
+                }
+                return;
+            }
+            // 2.一条语句删除所有用户的商品：(user_id = ? AND item_id IN (...)) OR ...
+            QueryWrapper<Cart> queryWrapper = new QueryWrapper<Cart>();
+            queryWrapper.lambda().and(w -> {
+                for (CartItemsDeleteDTO r : fresh) {
+                    w.or(x -> x.eq(Cart::getUserId, r.getUserId()).in(Cart::getItemId, r.getItemIds()));
+                }
+            });
+            remove(queryWrapper);
+        });
     }
 }
@@ -0,0 +1,449 @@
+package com.hmall.cart.store;
+
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.toolkit.SqlHelper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hmall.cart.config.CartStoreProperties;
+import com.hmall.cart.domain.dto.CartFormDTO;
+import com.hmall.cart.domain.po.Cart;
+import com.hmall.cart.mapper.CartMapper;
+import com.hmall.common.exception.BizIllegalException;
+import com.hmall.common.utils.BeanUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * 内存购物车
+ * <p>
+ * 每个用户的购物车在内存中保存一份工作副本，加购、改数量、删除都在持有该用户锁的情况下一次完成，
+ * 变更由后台线程在每个时间窗口内批量回写cart表。用户购物车首次访问时从数据库懒加载，重启后自然恢复。
+ * 注意：工作副本是购物车的权威数据，只适用于单实例部署，或网关按用户id把请求固定路由到同一个cart-service实例。
+ * </p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "hm.cart.store", name = "enabled", havingValue = "true")
+public class CartStore {
+
+    public static final int MAX_LINES = 10;
+
+    private static final Log MYBATIS_LOG = LogFactory.getLog(CartStore.class);
+    private static final String INSERT_STATEMENT = "com.hmall.cart.mapper.CartMapper.insert";
+    private static final String UPDATE_NUM_STATEMENT = "com.hmall.cart.mapper.CartMapper.updateNumById";
+
+    private final CartMapper cartMapper;
+    private final CartStoreProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Cache<Long, UserCart> carts;
+    // 有未回写变更的购物车，回写完成前不会因缓存淘汰而丢失
+    private final Map<Long, UserCart> dirty = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService flusher;
+
+    public CartStore(CartMapper cartMapper, CartStoreProperties properties, TransactionTemplate transactionTemplate) {
+        this.cartMapper = cartMapper;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.carts = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumUsers())
+                .expireAfterAccess(properties.getExpireAfterAccess())
+                .build();
+    }
+
+    @PostConstruct
+    public void init() {
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "cart-store-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = properties.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        // 停止调度后回写全部剩余变更
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        while (!dirty.isEmpty()) {
+            if (flush() == 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 添加商品到购物车，已存在则数量加1
+     *
+     * @param userId 用户id
+     * @param form   商品信息
+     */
+    public void addItem(Long userId, CartFormDTO form) {
+        UserCart cart = lock(userId, true);
+        try {
+            // 1.已存在，数量加1
+            Line line = cart.lines.get(form.getItemId());
+            if (line != null) {
+                line.cart.setNum(line.cart.getNum() + 1);
+                line.cart.setUpdateTime(LocalDateTime.now());
+                line.changed = true;
+                markDirty(userId, cart);
+                return;
+            }
+            // 2.不存在，判断是否超过购物车数量
+            if (cart.lines.size() >= MAX_LINES) {
+                throw new BizIllegalException(StrUtil.format("用户购物车课程不能超过{}", MAX_LINES));
+            }
+            // 3.新增购物车条目
+            Cart po = BeanUtils.copyBean(form, Cart.class);
+            LocalDateTime now = LocalDateTime.now();
+            po.setUserId(userId).setNum(1).setCreateTime(now).setUpdateTime(now);
+            cart.lines.put(po.getItemId(), new Line(po));
+            markDirty(userId, cart);
+        } finally {
+            cart.lock.unlock();
+        }
+    }
+
+    /**
+     * 查询用户的购物车，新增但尚未回写的条目会先同步写入数据库，以便前端能用条目id修改和删除。
+     * 删除后又重新加购的商品，旧条目要先删除，否则新条目会与它冲突在 (user_id, item_id) 唯一索引上
+     *
+     * @param userId 用户id
+     * @return 购物车条目的副本
+     */
+    public List<Cart> listCarts(Long userId) {
+        UserCart cart = lock(userId, false);
+        try {
+            List<Cart> inserts = new ArrayList<>();
+            for (Line line : cart.lines.values()) {
+                if (line.cart.getId() == null) {
+                    inserts.add(line.cart);
+                }
+            }
+            if (!inserts.isEmpty()) {
+                write(inserts, new ArrayList<>(), new ArrayList<>(cart.removedIds));
+                cart.removedIds.clear();
+            }
+            List<Cart> result = new ArrayList<>(cart.lines.size());
+            for (Line line : cart.lines.values()) {
+                result.add(BeanUtils.copyBean(line.cart, Cart.class));
+            }
+            return result;
+        } finally {
+            cart.lock.unlock();
+        }
+    }
+
+    /**
+     * 修改购物车条目的购买数量
+     *
+     * @param userId 用户id
+     * @param id     购物车条目id
+     * @param num    购买数量
+     */
+    public void updateNum(Long userId, Long id, Integer num) {
+        if (id == null || num == null) {
+            return;
+        }
+        UserCart cart = lock(userId, true);
+        try {
+            for (Line line : cart.lines.values()) {
+                if (id.equals(line.cart.getId())) {
+                    line.cart.setNum(num);
+                    line.cart.setUpdateTime(LocalDateTime.now());
+                    line.changed = true;
+                    markDirty(userId, cart);
+                    return;
+                }
+            }
+        } finally {
+            cart.lock.unlock();
+        }
+    }
+
+    /**
+     * 按条目id删除
+     *
+     * @param userId 用户id
+     * @param id     购物车条目id
+     */
+    public void removeById(Long userId, Long id) {
+        UserCart cart = lock(userId, true);
+        try {
+            removeIf(userId, cart, line -> id.equals(line.cart.getId()));
+        } finally {
+            cart.lock.unlock();
+        }
+    }
+
+    /**
+     * 按商品id删除，用于下单后清理购物车
+     *
+     * @param userId  用户id
+     * @param itemIds 商品id
+     */
+    public void removeItems(Long userId, Collection<Long> itemIds) {
+        UserCart cart = lock(userId, true);
+        try {
+            removeIf(userId, cart, line -> itemIds.contains(line.cart.getItemId()));
+        } finally {
+            cart.lock.unlock();
+        }
+    }
+
+    private void removeIf(Long userId, UserCart cart, Predicate<Line> filter) {
+        Iterator<Line> it = cart.lines.values().iterator();
+        while (it.hasNext()) {
+            Line line = it.next();
+            if (!filter.test(line)) {
+                continue;
+            }
+            it.remove();
+            // 尚未写入数据库的条目直接丢弃
+            if (line.cart.getId() != null) {
+                cart.removedIds.add(line.cart.getId());
+                markDirty(userId, cart);
+            }
+        }
+    }
+
+    /**
+     * 取得用户当前的购物车并加锁
+     * <p>
+     * 拿到实例后到加锁前，它可能已被缓存淘汰并由其它线程重新加载出新的实例，所以加锁后要确认它仍是当前实例，否则重试。
+     * 写操作在加锁后先把实例登记到待回写列表，待回写列表中的实例就是该用户唯一的当前实例。
+     * </p>
+     *
+     * @param userId 用户id
+     * @param write  是否会修改购物车
+     * @return 已加锁的购物车，调用方负责解锁
+     */
+    private UserCart lock(Long userId, boolean write) {
+        while (true) {
+            UserCart cart = load(userId);
+            cart.lock.lock();
+            if (isCurrent(userId, cart, write)) {
+                return cart;
+            }
+            cart.lock.unlock();
+        }
+    }
+
+    private boolean isCurrent(Long userId, UserCart cart, boolean write) {
+        UserCart pending = write ? dirty.putIfAbsent(userId, cart) : dirty.get(userId);
+        if (pending != null) {
+            return pending == cart;
+        }
+        if (carts.getIfPresent(userId) == cart) {
+            return true;
+        }
+        // 已被淘汰的旧实例，撤销刚才的登记
+        if (write) {
+            dirty.remove(userId, cart);
+        }
+        return false;
+    }
+
+    private UserCart load(Long userId) {
+        if (userId == null) {
+            throw new BizIllegalException("用户未登录");
+        }
+        // 有未回写变更的购物车优先使用，避免被淘汰后重新加载到旧数据
+        UserCart cart = dirty.get(userId);
+        if (cart != null) {
+            return cart;
+        }
+        return carts.get(userId, id -> {
+            UserCart loaded = new UserCart();
+            List<Cart> list = cartMapper.selectList(new LambdaQueryWrapper<Cart>()
+                    .eq(Cart::getUserId, id)
+                    .orderByAsc(Cart::getId));
+            for (Cart c : list) {
+                loaded.lines.put(c.getItemId(), new Line(c));
+            }
+            return loaded;
+        });
+    }
+
+    private void markDirty(Long userId, UserCart cart) {
+        dirty.put(userId, cart);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("购物车回写失败", e);
+        }
+    }
+
+    /**
+     * 回写一批用户的变更，所有语句在同一个事务中批量执行；整批失败时逐个用户重试，一个用户的失败不会阻塞其他用户
+     *
+     * @return 本次回写成功的用户数
+     */
+    public int flush() {
+        // 1.选出一批有变更的用户，按用户id顺序加锁
+        List<Map.Entry<Long, UserCart>> batch = new ArrayList<>();
+        for (Map.Entry<Long, UserCart> e : dirty.entrySet()) {
+            batch.add(e);
+            if (batch.size() >= properties.getFlushBatchSize()) {
+                break;
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        batch.sort(Map.Entry.comparingByKey());
+        for (Map.Entry<Long, UserCart> e : batch) {
+            e.getValue().lock.lock();
+        }
+        try {
+            // 2.收集新增、修改、删除
+            Changes all = new Changes();
+            for (Map.Entry<Long, UserCart> e : batch) {
+                all.collect(e.getValue());
+            }
+            // 3.批量写入
+            try {
+                write(all.inserts, all.updates, all.deletes);
+            } catch (RuntimeException ex) {
+                log.warn("购物车批量回写失败，改为逐个用户回写，用户数：{}，原因：{}", batch.size(), ex.getMessage());
+                return flushEach(batch);
+            }
+            for (Map.Entry<Long, UserCart> e : batch) {
+                markFlushed(e.getKey(), e.getValue());
+            }
+            log.debug("购物车回写完成，用户数：{}，新增：{}，修改：{}，删除：{}",
+                    batch.size(), all.inserts.size(), all.updates.size(), all.deletes.size());
+            return batch.size();
+        } finally {
+            for (Map.Entry<Long, UserCart> e : batch) {
+                e.getValue().lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 逐个用户回写，失败的用户保留变更标记，下个窗口重试
+     */
+    private int flushEach(List<Map.Entry<Long, UserCart>> batch) {
+        int flushed = 0;
+        for (Map.Entry<Long, UserCart> e : batch) {
+            Changes changes = new Changes();
+            changes.collect(e.getValue());
+            try {
+                write(changes.inserts, changes.updates, changes.deletes);
+            } catch (RuntimeException ex) {
+                log.error("购物车回写失败，userId：{}", e.getKey(), ex);
+                continue;
+            }
+            markFlushed(e.getKey(), e.getValue());
+            flushed++;
+        }
+        return flushed;
+    }
+
+    private void markFlushed(Long userId, UserCart cart) {
+        for (Line line : cart.lines.values()) {
+            line.changed = false;
+        }
+        cart.removedIds.clear();
+        // 回写完成，先交回缓存管理再移出待回写列表；缓存中可能有期间加载的旧实例，直接覆盖
+        carts.put(userId, cart);
+        dirty.remove(userId, cart);
+    }
+
+    /**
+     * 在一个事务中回写，先删除再新增：删除后又重新加购的商品，新旧条目的 (user_id, item_id) 相同
+     */
+    private void write(List<Cart> inserts, List<Cart> updates, List<Long> deletes) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!deletes.isEmpty()) {
+                    cartMapper.deleteBatchIds(deletes);
+                }
+                if (!inserts.isEmpty()) {
+                    SqlHelper.executeBatch(Cart.class, MYBATIS_LOG, inserts, inserts.size(),
+                            (sqlSession, entity) -> sqlSession.insert(INSERT_STATEMENT, entity));
+                }
+                if (!updates.isEmpty()) {
+                    SqlHelper.executeBatch(Cart.class, MYBATIS_LOG, updates, updates.size(),
+                            (sqlSession, entity) -> sqlSession.update(UPDATE_NUM_STATEMENT, entity));
+                }
+            });
+        } catch (RuntimeException e) {
+            // 事务已回滚，清除回填的主键，下次重新插入
+            for (Cart c : inserts) {
+                c.setId(null);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 一个用户的购物车，所有读写都要持有 lock
+     */
+    private static class UserCart {
+        private final ReentrantLock lock = new ReentrantLock();
+        // 商品id -> 购物车条目
+        private final Map<Long, Line> lines = new LinkedHashMap<>();
+        // 已删除且需要从数据库删除的条目id
+        private final List<Long> removedIds = new ArrayList<>();
+    }
+
+    /**
+     * 一次回写的新增、修改、删除
+     */
+    private static class Changes {
+        private final List<Cart> inserts = new ArrayList<>();
+        private final List<Cart> updates = new ArrayList<>();
+        private final List<Long> deletes = new ArrayList<>();
+
+        private void collect(UserCart cart) {
+            for (Line line : cart.lines.values()) {
+                if (line.cart.getId() == null) {
+                    inserts.add(line.cart);
+                } else if (line.changed) {
+                    updates.add(line.cart);
+                }
+            }
+            deletes.addAll(cart.removedIds);
+        }
+    }
+
+    private static class Line {
+        private final Cart cart;
+        // 已写入数据库后又被修改
+        private boolean changed;
+
+        private Line(Cart cart) {
+            this.cart = cart;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+-- 已处理的下单清理购物车事件，与删除购物车在同一个事务中写入，重复投递的事件不会删掉用户之后重新加购的商品
+CREATE TABLE IF NOT EXISTS cart_cleanup_record
+(
+    event_key   VARCHAR(128) NOT NULL COMMENT '事件的幂等键',
+    create_time DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '处理时间',
+    PRIMARY KEY (event_key),
+    KEY idx_create_time (create_time)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4 COMMENT '下单清理购物车事件的幂等记录';
@@ -0,0 +1,9 @@
+-- 加购锁行：加购事务先 SELECT ... FOR UPDATE 锁住用户行，同一用户的加购串行执行，
+-- 购物车条目数上限不再依赖 cart 表上的间隙锁，并发加购不会死锁
+CREATE TABLE IF NOT EXISTS cart_user
+(
+    user_id     BIGINT   NOT NULL COMMENT '用户id',
+    create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (user_id)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4 COMMENT '购物车用户，加购时的锁行';
@@ -0,0 +1,18 @@
+-- 加购改为 INSERT ... ON DUPLICATE KEY UPDATE，依赖 (user_id, item_id) 唯一索引
+-- 1.合并历史上并发加购产生的重复条目
+UPDATE cart c
+    JOIN (SELECT user_id, item_id, MIN(id) AS keep_id, SUM(num) AS total
+          FROM cart
+          GROUP BY user_id, item_id
+          HAVING COUNT(*) > 1) d ON c.id = d.keep_id
+SET c.num = d.total;
+
+DELETE c
+FROM cart c
+    JOIN (SELECT user_id, item_id, MIN(id) AS keep_id
+          FROM cart
+          GROUP BY user_id, item_id
+          HAVING COUNT(*) > 1) d ON c.user_id = d.user_id AND c.item_id = d.item_id AND c.id <> d.keep_id;
+
+-- 2.添加唯一索引，同时覆盖按用户查询购物车
+ALTER TABLE cart ADD UNIQUE KEY uk_user_item (user_id, item_id);
@@ -0,0 +1,93 @@
+package com.hmall.cart.domain;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.hmall.cart.domain.po.Cart;
+import com.hmall.cart.domain.vo.CartVO;
+import com.hmall.common.utils.BeanUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart -> CartVO 的属性拷贝耗时：BeanUtils（生成的访问器）与原来的 hutool 反射拷贝对比
+ * <p>
+ * rows=10 对应 queryMyCarts 一个满的购物车，rows=1000 对应 PageDTO.of 一页最多1000行。
+ * </p>
+ * 运行方式：
+ * <pre>
+ * mvn -pl cart-service -am test-compile
+ * mvn -pl cart-service exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     "-Dexec.args=-cp %classpath com.hmall.cart.domain.CartCopyBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CartCopyBenchmark {
+
+    @Param({"10", "1000"})
+    private int rows;
+
+    private Cart cart;
+    private List<Cart> carts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        carts = new ArrayList<>(rows);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < rows; i++) {
+            carts.add(new Cart().setId((long) i).setUserId(1L).setItemId(100L + i).setNum(1).setName("商品" + i)
+                    .setSpec("{\"颜色\":\"黑色\"}").setPrice(19900).setImage("https://img.hmall.com/" + i + ".jpg")
+                    .setCreateTime(now).setUpdateTime(now));
+        }
+        cart = carts.get(0);
+    }
+
+    @Benchmark
+    public CartVO copierBean() {
+        return BeanUtils.copyBean(cart, CartVO.class);
+    }
+
+    @Benchmark
+    public CartVO hutoolBean() {
+        return BeanUtil.toBean(cart, CartVO.class);
+    }
+
+    @Benchmark
+    public List<CartVO> copierList() {
+        return BeanUtils.copyList(carts, CartVO.class);
+    }
+
+    @Benchmark
+    public List<CartVO> hutoolList() {
+        return BeanUtil.copyToList(carts, CartVO.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CartCopyBenchmark.class.getName())
+                .build();
+        new Runner(options).run();
+    }
+}
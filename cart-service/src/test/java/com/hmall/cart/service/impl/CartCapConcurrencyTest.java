@@ -0,0 +1,193 @@
+package com.hmall.cart.service.impl;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import com.hmall.cart.domain.dto.CartFormDTO;
+import com.hmall.cart.mapper.CartMapper;
+import com.hmall.cart.store.CartStore;
+import com.hmall.common.exception.BizIllegalException;
+import com.hmall.common.utils.UserContext;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 同一用户100个并发加购，验证购物车条目数上限和数量累加在 MySQL 上的实际行为
+ * <p>
+ * 默认使用 Testcontainers 启动 MySQL 8.0，没有Docker时跳过；也可以用
+ * -Dhm.test.jdbc-url/-Dhm.test.username/-Dhm.test.password 指定已有的库，测试会重建 cart 和 cart_user 表。
+ * </p>
+ */
+class CartCapConcurrencyTest {
+
+    private static final int PARALLELISM = 100;
+    private static final long USER_ID = 1L;
+
+    private static MySQLContainer<?> mysql;
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static CartServiceImpl cartService;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        String url = System.getProperty("hm.test.jdbc-url");
+        String username = System.getProperty("hm.test.username", "root");
+        String password = System.getProperty("hm.test.password", "123");
+        if (url == null) {
+            Assumptions.assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "没有可用的Docker");
+            mysql = new MySQLContainer<>("mysql:8.0.23");
+            mysql.start();
+            url = mysql.getJdbcUrl();
+            username = mysql.getUsername();
+            password = mysql.getPassword();
+        }
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(PARALLELISM);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        createTables();
+
+        // 1.只初始化 CartMapper，不启动整个服务
+        MybatisSqlSessionFactoryBean factoryBean = new MybatisSqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setConfiguration(new MybatisConfiguration());
+        SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+        sqlSessionFactory.getConfiguration().addMapper(CartMapper.class);
+        CartMapper cartMapper = new SqlSessionTemplate(sqlSessionFactory).getMapper(CartMapper.class);
+
+        // 2.未启用内存购物车，走数据库加购路径
+        cartService = new CartServiceImpl(null,
+                new StaticListableBeanFactory().getBeanProvider(CartStore.class),
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)), null);
+        ReflectionTestUtils.setField(cartService, "baseMapper", cartMapper);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+        if (mysql != null) {
+            mysql.stop();
+        }
+    }
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.update("DELETE FROM cart");
+        jdbcTemplate.update("DELETE FROM cart_user");
+    }
+
+    @Test
+    void parallelAddsOfDifferentItemsStopAtCap() throws Exception {
+        List<Throwable> failures = addInParallel(i -> i + 1L);
+
+        assertEquals(CartStore.MAX_LINES, count("SELECT COUNT(*) FROM cart WHERE user_id = ?"));
+        assertEquals(PARALLELISM - CartStore.MAX_LINES, failures.size());
+        for (Throwable t : failures) {
+            // 只允许因购物车已满被拒绝，不允许死锁等其它异常
+            assertTrue(t instanceof BizIllegalException, t.toString());
+        }
+    }
+
+    @Test
+    void parallelAddsOfSameItemAccumulate() throws Exception {
+        List<Throwable> failures = addInParallel(i -> 100L);
+
+        assertTrue(failures.isEmpty(), failures.toString());
+        assertEquals(1, count("SELECT COUNT(*) FROM cart WHERE user_id = ?"));
+        assertEquals(PARALLELISM, count("SELECT num FROM cart WHERE user_id = ?"));
+    }
+
+    private List<Throwable> addInParallel(IntFunction<Long> itemIdOf) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>(PARALLELISM);
+        for (int i = 0; i < PARALLELISM; i++) {
+            CartFormDTO form = new CartFormDTO();
+            form.setItemId(itemIdOf.apply(i));
+            form.setName("item-" + form.getItemId());
+            form.setSpec("{}");
+            form.setPrice(100);
+            form.setImage("");
+            futures.add(executor.submit(() -> {
+                start.await();
+                UserContext.setUser(USER_ID);
+                try {
+                    cartService.addItem2Cart(form);
+                } finally {
+                    UserContext.removeUser();
+                }
+                return null;
+            }));
+        }
+        // 所有线程就绪后同时开始
+        start.countDown();
+        List<Throwable> failures = new ArrayList<>();
+        for (Future<?> f : futures) {
+            try {
+                f.get(30, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                failures.add(e.getCause());
+            }
+        }
+        executor.shutdownNow();
+        return failures;
+    }
+
+    private int count(String sql) {
+        Integer n = jdbcTemplate.queryForObject(sql, Integer.class, USER_ID);
+        return n == null ? 0 : n;
+    }
+
+    private static void createTables() throws Exception {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS cart");
+        jdbcTemplate.execute("CREATE TABLE cart (" +
+                "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, " +
+                "user_id BIGINT NOT NULL, " +
+                "item_id BIGINT NOT NULL, " +
+                "num INT NOT NULL DEFAULT 1, " +
+                "name VARCHAR(256) NOT NULL DEFAULT '', " +
+                "spec VARCHAR(1024) NOT NULL DEFAULT '{}', " +
+                "price INT NOT NULL DEFAULT 0, " +
+                "image VARCHAR(256) NOT NULL DEFAULT '', " +
+                "create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                "update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
+                "UNIQUE KEY uk_user_item (user_id, item_id)) ENGINE = InnoDB");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS cart_user");
+        // 与线上使用同一份建表语句
+        try (InputStream in = CartCapConcurrencyTest.class.getResourceAsStream("/db/cart_user.sql")) {
+            jdbcTemplate.execute(StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.hmall.cart.store;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import com.hmall.cart.config.CartStoreProperties;
+import com.hmall.cart.domain.dto.CartFormDTO;
+import com.hmall.cart.domain.po.Cart;
+import com.hmall.cart.mapper.CartMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * 内存购物车回写在 MySQL 上的行为，重点是删除后又重新加购同一商品时不会与 (user_id, item_id) 唯一索引冲突
+ * <p>
+ * 默认使用 Testcontainers 启动 MySQL 8.0，没有Docker时跳过；也可以用
+ * -Dhm.test.jdbc-url/-Dhm.test.username/-Dhm.test.password 指定已有的库，测试会重建 cart 表。
+ * </p>
+ */
+class CartStoreFlushTest {
+
+    private static final long USER_ID = 1L;
+    private static final long ITEM_ID = 100L;
+
+    private static MySQLContainer<?> mysql;
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static CartMapper cartMapper;
+    private static TransactionTemplate transactionTemplate;
+
+    private CartStore store;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        String url = System.getProperty("hm.test.jdbc-url");
+        String username = System.getProperty("hm.test.username", "root");
+        String password = System.getProperty("hm.test.password", "123");
+        if (url == null) {
+            Assumptions.assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "没有可用的Docker");
+            mysql = new MySQLContainer<>("mysql:8.0.23");
+            mysql.start();
+            url = mysql.getJdbcUrl();
+            username = mysql.getUsername();
+            password = mysql.getPassword();
+        }
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        createTable();
+
+        // 只初始化 CartMapper，不启动整个服务
+        MybatisSqlSessionFactoryBean factoryBean = new MybatisSqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setConfiguration(new MybatisConfiguration());
+        SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+        sqlSessionFactory.getConfiguration().addMapper(CartMapper.class);
+        cartMapper = new SqlSessionTemplate(sqlSessionFactory).getMapper(CartMapper.class);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+        if (mysql != null) {
+            mysql.stop();
+        }
+    }
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.update("DELETE FROM cart");
+        // 不启动后台回写线程，由测试直接调用 flush
+        store = new CartStore(cartMapper, new CartStoreProperties(), transactionTemplate);
+    }
+
+    @Test
+    void removeThenReAddIsFlushedInOneWindow() {
+        Long oldId = addAndFlush();
+
+        store.removeById(USER_ID, oldId);
+        store.addItem(USER_ID, form());
+
+        assertEquals(1, store.flush());
+        // 变更已全部回写，不会在之后的窗口反复重试
+        assertEquals(0, store.flush());
+        assertSingleLine(oldId);
+    }
+
+    @Test
+    void removeThenReAddIsWrittenWhenListed() {
+        Long oldId = addAndFlush();
+
+        store.removeById(USER_ID, oldId);
+        store.addItem(USER_ID, form());
+        List<Cart> carts = store.listCarts(USER_ID);
+
+        assertEquals(1, carts.size());
+        assertNotNull(carts.get(0).getId());
+        assertEquals(1, store.flush());
+        assertEquals(0, store.flush());
+        assertSingleLine(oldId);
+    }
+
+    private Long addAndFlush() {
+        store.addItem(USER_ID, form());
+        assertEquals(1, store.flush());
+        return store.listCarts(USER_ID).get(0).getId();
+    }
+
+    private void assertSingleLine(Long oldId) {
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM cart WHERE user_id = ? AND item_id = ?", Long.class, USER_ID, ITEM_ID);
+        assertEquals(1, ids.size());
+        assertNotEquals(oldId, ids.get(0));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT num FROM cart WHERE id = ?", Integer.class, ids.get(0)));
+    }
+
+    private static CartFormDTO form() {
+        CartFormDTO form = new CartFormDTO();
+        form.setItemId(ITEM_ID);
+        form.setName("item-" + ITEM_ID);
+        form.setSpec("{}");
+        form.setPrice(100);
+        form.setImage("");
+        return form;
+    }
+
+    private static void createTable() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS cart");
+        jdbcTemplate.execute("CREATE TABLE cart (" +
+                "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, " +
+                "user_id BIGINT NOT NULL, " +
+                "item_id BIGINT NOT NULL, " +
+                "num INT NOT NULL DEFAULT 1, " +
+                "name VARCHAR(256) NOT NULL DEFAULT '', " +
+                "spec VARCHAR(1024) NOT NULL DEFAULT '{}', " +
+                "price INT NOT NULL DEFAULT 0, " +
+                "image VARCHAR(256) NOT NULL DEFAULT '', " +
+                "create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                "update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
+                "UNIQUE KEY uk_user_item (user_id, item_id)) ENGINE = InnoDB");
+    }
+}
@@ -0,0 +1,208 @@
+package com.hmall.api.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.hmall.api.client.ItemClient;
+import com.hmall.api.config.ItemCacheProperties;
+import com.hmall.api.dto.ItemDTO;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 包装 ItemClient 的商品本地缓存
+ * <p>
+ * 按商品id缓存，只批量查询缺失的id。展示场景（购物车）允许在 stockFreshness 之后继续返回旧值，
+ * 同时在后台异步刷新（stale-while-revalidate）；计价场景（下单）只接受 priceFreshness 以内的数据，
+ * 过期的商品同步重新查询，保证不会用旧价格下单。返回的对象是缓存中的实例，调用方不要修改。
+ * </p>
+ */
+@Slf4j
+public class ItemCache {
+
+    private final ItemClient itemClient;
+    private final ItemCacheProperties properties;
+    private final Cache<Long, Entry> cache;
+    // 正在异步刷新的商品id，避免重复刷新
+    private final Set<Long> refreshing = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor refreshExecutor;
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+
+    public ItemCache(ItemClient itemClient, ItemCacheProperties properties) {
+        this.itemClient = itemClient;
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        this.refreshExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(64), r -> {
+            Thread t = new Thread(r, "item-cache-refresher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 展示场景查询商品，允许返回略旧的库存和状态
+     *
+     * @param ids 商品id集合
+     * @return 查询到的商品，不存在的商品不返回
+     */
+    public List<ItemDTO> queryItemByIds(Collection<Long> ids) {
+        long now = System.nanoTime();
+        long freshness = properties.getStockFreshness().toNanos();
+        List<ItemDTO> result = new ArrayList<>(ids.size());
+        Set<Long> missing = new LinkedHashSet<>();
+        Set<Long> stale = new LinkedHashSet<>();
+        for (Long id : ids) {
+            Entry entry = cache.getIfPresent(id);
+            if (entry == null) {
+                missing.add(id);
+                continue;
+            }
+            if (now - entry.loadedAt > freshness) {
+                staleHits.increment();
+                stale.add(id);
+            }
+            result.add(entry.item);
+        }
+        // 1.缺失的商品同步批量查询
+        result.addAll(load(missing));
+        // 2.过期的商品先返回旧值，后台刷新
+        refreshAsync(stale);
+        return result;
+    }
+
+    /**
+     * 计价场景查询商品，价格不会早于 priceFreshness
+     *
+     * @param ids 商品id集合
+     * @return 查询到的商品，不存在的商品不返回
+     */
+    public List<ItemDTO> queryItemByIdsForPricing(Collection<Long> ids) {
+        long now = System.nanoTime();
+        long freshness = properties.getPriceFreshness().toNanos();
+        List<ItemDTO> result = new ArrayList<>(ids.size());
+        Set<Long> reload = new LinkedHashSet<>();
+        for (Long id : ids) {
+            Entry entry = freshness > 0 ? cache.getIfPresent(id) : null;
+            if (entry == null || now - entry.loadedAt > freshness) {
+                reload.add(id);
+                continue;
+            }
+            result.add(entry.item);
+        }
+        result.addAll(load(reload));
+        return result;
+    }
+
+    /**
+     * 商品被修改后主动失效
+     *
+     * @param ids 商品id集合
+     */
+    public void invalidate(Collection<Long> ids) {
+        cache.invalidateAll(ids);
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long staleHitCount() {
+        return staleHits.sum();
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "itemCache");
+        FunctionCounter.builder("hm.item-cache.stale.hits", staleHits, LongAdder::sum)
+                .description("返回旧值并触发异步刷新的次数")
+                .register(registry);
+        FunctionCounter.builder("hm.item-cache.refresh.failures", refreshFailures, LongAdder::sum)
+                .description("异步刷新失败的次数")
+                .register(registry);
+    }
+
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private List<ItemDTO> load(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ItemDTO> items = itemClient.queryItemByIds(ids);
+        if (items == null || items.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long now = System.nanoTime();
+        for (ItemDTO item : items) {
+            cache.put(item.getId(), new Entry(item, now));
+        }
+        return items;
+    }
+
+    private void refreshAsync(Set<Long> ids) {
+        // 只刷新没有在刷新中的商品
+        ids.removeIf(id -> !refreshing.add(id));
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    List<ItemDTO> items = load(ids);
+                    // 空结果可能是降级返回的，只有查到部分商品时才认为其余商品已不存在，不再返回旧值
+                    if (!items.isEmpty() && items.size() < ids.size()) {
+                        Set<Long> found = new HashSet<>();
+                        for (ItemDTO item : items) {
+                            found.add(item.getId());
+                        }
+                        for (Long id : ids) {
+                            if (!found.contains(id)) {
+                                cache.invalidate(id);
+                            }
+                        }
+                    }
+                } catch (Exception e) {
+                    refreshFailures.increment();
+                    log.warn("异步刷新商品缓存失败，ids: {}, 原因: {}", ids, e.getMessage());
+                } finally {
+                    refreshing.removeAll(ids);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 刷新队列已满，本次不刷新，下次访问再触发
+            refreshing.removeAll(ids);
+        }
+    }
+
+    private static class Entry {
+        private final ItemDTO item;
+        private final long loadedAt;
+
+        private Entry(ItemDTO item, long loadedAt) {
+            this.item = item;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -1,14 +1,31 @@
 package com.hmall.api.client;
 
+import com.hmall.api.dto.CartItemsDeleteDTO;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.Collection;
+import java.util.List;
 
 @FeignClient("cart-service")
 public interface CartClient {
     
     @DeleteMapping("/carts")
     void deleteCartItemByIds(@RequestParam("ids") Collection<Long> ids);
-}
\ No newline at end of file
+
+    /**
+     * 删除指定用户购物车中的商品，用于异步调用等没有登录用户上下文的场景；仅限服务间调用，网关对外屏蔽该路径
+     */
+    @DeleteMapping("/carts/users/{userId}")
+    void deleteUserCartItems(@PathVariable("userId") Long userId, @RequestParam("itemIds") Collection<Long> itemIds);
+
+    /**
+     * 批量删除多个用户购物车中的商品
+     */
+    @PostMapping("/carts/batch-delete")
+    void deleteCartItemsInBatch(@RequestBody List<CartItemsDeleteDTO> requests);
+}
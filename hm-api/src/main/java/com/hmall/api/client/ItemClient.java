@@ -3,8 +3,11 @@ package com.hmall.api.client;
 import com.hmall.api.client.fallback.ItemClientFallbackFactory;
 import com.hmall.api.dto.ItemDTO;
 import com.hmall.api.dto.OrderDetailDTO;
+import com.hmall.api.dto.StockReserveResultDTO;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -21,4 +24,17 @@ public interface ItemClient {
 
     @PutMapping("/items/stock/deduct")
     void deductStock(@RequestBody List<OrderDetailDTO> items);
+
+    /**
+     * 以预占id预占库存，同一个预占id重复调用只扣减一次；调用超时等结果不确定时，用同一个预占id取消即可归还
+     */
+    @PutMapping("/items/stock/reservations/{reservationId}")
+    StockReserveResultDTO reserveStock(@PathVariable("reservationId") String reservationId,
+                                       @RequestBody List<OrderDetailDTO> items);
+
+    /**
+     * 取消预占并归还库存，可重复调用；预占不存在时登记为已取消，之后到达的同一预占会被拒绝
+     */
+    @DeleteMapping("/items/stock/reservations/{reservationId}")
+    void cancelReservation(@PathVariable("reservationId") String reservationId);
 }
@@ -3,10 +3,16 @@ package com.hmall.api.client;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.Collection;
 
 @FeignClient("trade-service")
 public interface TradeClient {
     
     @PutMapping("/orders/{orderId}")
     void markOrderPaySuccess(@PathVariable("orderId") Long orderId);
+
+    @PutMapping("/orders/pay-success")
+    void markOrdersPaySuccess(@RequestBody Collection<Long> orderIds);
 }
\ No newline at end of file
@@ -13,6 +13,16 @@ public interface UserClient {
     @GetMapping("/users/{id}")
     UserDTO queryUserById(@PathVariable("id") Long userId);
     
+    /**
+     * 扣减当前用户的余额，密码错误、余额不足时返回4xx；同一个 bizKey 只扣款一次，结果不确定时可以用同一个键重试或对账
+     */
     @PutMapping("/users/money/deduct")
-    void deductMoney(@RequestParam("pw") String pw, @RequestParam("amount") Integer amount);
+    void deductMoney(@RequestParam("pw") String pw, @RequestParam("amount") Integer amount,
+                     @RequestParam("bizKey") String bizKey);
+
+    /**
+     * 查询 bizKey 对应的扣款是否已经发生，仅限服务间调用
+     */
+    @GetMapping("/users/money/journals")
+    Boolean isDeducted(@RequestParam("bizKey") String bizKey);
 }
\ No newline at end of file
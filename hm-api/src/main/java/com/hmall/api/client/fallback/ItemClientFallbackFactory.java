@@ -3,6 +3,7 @@ package com.hmall.api.client.fallback;
 import com.hmall.api.client.ItemClient;
 import com.hmall.api.dto.ItemDTO;
 import com.hmall.api.dto.OrderDetailDTO;
+import com.hmall.api.dto.StockReserveResultDTO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cloud.openfeign.FallbackFactory;
 import org.springframework.stereotype.Component;
@@ -38,6 +39,20 @@ public class ItemClientFallbackFactory implements FallbackFactory<ItemClient> {
                 log.error("扣减商品库存失败，原因: {}", throwable.getMessage(), throwable);
                 throw new RuntimeException("库存扣减失败，请稍后重试", throwable);
             }
+
+            @Override
+            public StockReserveResultDTO reserveStock(String reservationId, List<OrderDetailDTO> items) {
+                // 预占库存失败时不能假定库存充足，直接失败
+                log.error("预占商品库存失败，reservationId: {}, 原因: {}", reservationId, throwable.getMessage(), throwable);
+                throw new RuntimeException("库存预占失败，请稍后重试", throwable);
+            }
+
+            @Override
+            public void cancelReservation(String reservationId) {
+                // 取消可以重复调用，调用方稍后重试即可
+                log.error("取消库存预占失败，reservationId: {}, 原因: {}", reservationId, throwable.getMessage(), throwable);
+                throw new RuntimeException("取消库存预占失败", throwable);
+            }
         };
     }
 }
\ No newline at end of file
@@ -0,0 +1,191 @@
+package com.hmall.api.coalesce;
+
+import com.hmall.api.config.CoalesceProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * 请求合并器
+ * <p>
+ * 把同一个接口的并发调用在一个很短的时间窗口内（或攒满 maxBatchSize 个后）合并为一次批量调用，
+ * 再把批量结果按顺序分发给各个调用方。批量调用失败时，这一批的所有调用方都收到同一个异常。
+ * 适用于单次开销以网络往返为主、且批量接口与逐个调用语义相同的场景。
+ * </p>
+ *
+ * @param <T> 单个请求的类型
+ * @param <R> 单个结果的类型
+ */
+@Slf4j
+public class RequestCoalescer<T, R> {
+
+    private final String name;
+    private final Function<List<T>, List<R>> bulkCall;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final long timeoutMillis;
+    private final ScheduledThreadPoolExecutor timer;
+    private final ThreadPoolExecutor sender;
+
+    private final Object lock = new Object();
+    // 当前窗口内收集的请求，只在持有 lock 时访问
+    private List<Pending<T, R>> pending = new ArrayList<>();
+    // 每发出一批加1，用于忽略已被提前发出的窗口的定时任务
+    private long generation;
+    private DistributionSummary batchSize;
+
+    /**
+     * @param name       名称，用于线程名和监控
+     * @param properties 合并参数
+     * @param bulkCall   批量调用，返回的结果必须与请求一一对应
+     */
+    public RequestCoalescer(String name, CoalesceProperties properties, Function<List<T>, List<R>> bulkCall) {
+        this.name = name;
+        this.bulkCall = bulkCall;
+        this.windowNanos = properties.getWindow().toNanos();
+        this.maxBatchSize = properties.getMaxBatchSize();
+        this.timeoutMillis = properties.getTimeout().toMillis();
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "coalescer-" + name + "-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+        // 发送线程满时由提交的线程发送，不丢弃请求
+        this.sender = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1024), r -> {
+            Thread t = new Thread(r, "coalescer-" + name + "-sender");
+            t.setDaemon(true);
+            return t;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * 提交请求并等待结果
+     *
+     * @param request 请求
+     * @return 结果
+     */
+    public R call(T request) {
+        CompletableFuture<R> future = submit(request);
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("等待批量调用结果超时：" + name, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待批量调用结果被中断：" + name, e);
+        }
+    }
+
+    /**
+     * 提交请求
+     *
+     * @param request 请求
+     * @return 结果，批量调用完成后完成
+     */
+    public CompletableFuture<R> submit(T request) {
+        Pending<T, R> p = new Pending<>(request);
+        List<Pending<T, R>> ready = null;
+        synchronized (lock) {
+            pending.add(p);
+            if (pending.size() >= maxBatchSize) {
+                // 1.攒满一批，立即发送
+                ready = takeBatch();
+            } else if (pending.size() == 1) {
+                // 2.窗口内的第一个请求，到期后发送
+                long gen = generation;
+                timer.schedule(() -> flush(gen), windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (ready != null) {
+            dispatch(ready);
+        }
+        return p.future;
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        batchSize = DistributionSummary.builder("hm.feign.coalesce.batch.size")
+                .description("合并后每次批量调用包含的请求数")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+        sender.shutdown();
+    }
+
+    private void flush(long gen) {
+        List<Pending<T, R>> ready;
+        synchronized (lock) {
+            if (gen != generation || pending.isEmpty()) {
+                // 这个窗口已经因攒满而发出
+                return;
+            }
+            ready = takeBatch();
+        }
+        dispatch(ready);
+    }
+
+    private List<Pending<T, R>> takeBatch() {
+        List<Pending<T, R>> ready = pending;
+        pending = new ArrayList<>();
+        generation++;
+        return ready;
+    }
+
+    private void dispatch(List<Pending<T, R>> batch) {
+        sender.execute(() -> execute(batch));
+    }
+
+    private void execute(List<Pending<T, R>> batch) {
+        if (batchSize != null) {
+            batchSize.record(batch.size());
+        }
+        List<T> requests = new ArrayList<>(batch.size());
+        for (Pending<T, R> p : batch) {
+            requests.add(p.request);
+        }
+        try {
+            List<R> results = bulkCall.apply(requests);
+            if (results == null || results.size() != batch.size()) {
+                throw new IllegalStateException("批量调用返回的结果数与请求数不一致：" + name);
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).future.complete(results.get(i));
+            }
+        } catch (Throwable e) {
+            log.warn("批量调用失败：{}，请求数：{}", name, batch.size(), e);
+            for (Pending<T, R> p : batch) {
+                p.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static class Pending<T, R> {
+        private final T request;
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+
+        private Pending(T request) {
+            this.request = request;
+        }
+    }
+}
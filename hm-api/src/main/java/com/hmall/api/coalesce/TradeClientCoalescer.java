@@ -0,0 +1,39 @@
+package com.hmall.api.coalesce;
+
+import com.hmall.api.client.TradeClient;
+import com.hmall.api.config.CoalesceProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Collections;
+
+/**
+ * 合并 TradeClient 的并发调用，高峰期多笔支付成功的订单状态更新合并为一次批量请求
+ */
+public class TradeClientCoalescer {
+
+    private final RequestCoalescer<Long, Void> paySuccess;
+
+    public TradeClientCoalescer(TradeClient tradeClient, CoalesceProperties properties) {
+        this.paySuccess = new RequestCoalescer<>("trade-pay-success", properties, orderIds -> {
+            tradeClient.markOrdersPaySuccess(orderIds);
+            return Collections.nCopies(orderIds.size(), null);
+        });
+    }
+
+    /**
+     * 标记订单已支付，等同于 TradeClient.markOrderPaySuccess
+     *
+     * @param orderId 订单id
+     */
+    public void markOrderPaySuccess(Long orderId) {
+        paySuccess.call(orderId);
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        paySuccess.bindTo(registry);
+    }
+
+    public void shutdown() {
+        paySuccess.shutdown();
+    }
+}
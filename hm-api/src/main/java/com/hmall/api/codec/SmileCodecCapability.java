@@ -0,0 +1,41 @@
+package com.hmall.api.codec;
+
+import feign.Capability;
+import feign.RequestTemplate;
+import feign.codec.Encoder;
+
+import java.lang.reflect.Type;
+
+/**
+ * 让 Feign 以 Smile 格式发送请求体
+ * <p>
+ * SpringEncoder 按请求的 Content-Type 选择消息转换器，这里在编码前指定 Content-Type，
+ * 由 hm-common 中注册的 Smile 转换器完成编码。接口上已经声明了 consumes 的请求不受影响。
+ * </p>
+ */
+public class SmileCodecCapability implements Capability {
+
+    public static final String SMILE = "application/x-jackson-smile";
+    private static final String CONTENT_TYPE = "Content-Type";
+
+    @Override
+    public Encoder enrich(Encoder encoder) {
+        return new SmileEncoder(encoder);
+    }
+
+    private static class SmileEncoder implements Encoder {
+        private final Encoder delegate;
+
+        private SmileEncoder(Encoder delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void encode(Object object, Type bodyType, RequestTemplate template) {
+            if (object != null && !template.headers().containsKey(CONTENT_TYPE)) {
+                template.header(CONTENT_TYPE, SMILE);
+            }
+            delegate.encode(object, bodyType, template);
+        }
+    }
+}
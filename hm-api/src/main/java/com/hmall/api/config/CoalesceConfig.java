@@ -0,0 +1,28 @@
+package com.hmall.api.config;
+
+import com.hmall.api.client.TradeClient;
+import com.hmall.api.coalesce.TradeClientCoalescer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * 远程调用合并配置，通过 hm.feign.coalesce.enabled 开启
+ */
+@Configuration
+@EnableConfigurationProperties(CoalesceProperties.class)
+@ConditionalOnProperty(prefix = "hm.feign.coalesce", name = "enabled", havingValue = "true")
+public class CoalesceConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public TradeClientCoalescer tradeClientCoalescer(@Lazy TradeClient tradeClient, CoalesceProperties properties,
+                                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        TradeClientCoalescer coalescer = new TradeClientCoalescer(tradeClient, properties);
+        meterRegistry.ifAvailable(coalescer::bindTo);
+        return coalescer;
+    }
+}
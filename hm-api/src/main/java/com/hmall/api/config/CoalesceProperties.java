@@ -0,0 +1,31 @@
+package com.hmall.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "hm.feign.coalesce")
+public class CoalesceProperties {
+    /**
+     * 是否合并并发的远程调用，关闭时逐个调用
+     */
+    private boolean enabled = false;
+    /**
+     * 收集请求的时间窗口，从窗口内第一个请求开始计时
+     */
+    private Duration window = Duration.ofMillis(2);
+    /**
+     * 一批最多合并的请求数，达到后立即发送
+     */
+    private int maxBatchSize = 100;
+    /**
+     * 发送批量请求的线程数
+     */
+    private int threads = 4;
+    /**
+     * 调用方等待批量请求结果的最长时间
+     */
+    private Duration timeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,29 @@
+package com.hmall.api.config;
+
+import com.hmall.api.codec.SmileCodecCapability;
+import feign.RequestInterceptor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 服务间调用使用 Smile 编解码，通过 hm.feign.codec=smile 开启
+ * <p>
+ * 请求体以 Smile 发送，并通过 Accept 优先要求 Smile 响应，下游不支持时仍可返回JSON，解码器按响应的 Content-Type 选择转换器。
+ * 下游服务必须已经引入了包含 Smile 转换器的 hm-common，滚动升级时应在所有服务升级完成后再开启。
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "hm.feign.codec", havingValue = "smile")
+public class FeignCodecConfig {
+
+    @Bean
+    public SmileCodecCapability smileCodecCapability() {
+        return new SmileCodecCapability();
+    }
+
+    @Bean
+    public RequestInterceptor smileAcceptInterceptor() {
+        return template -> template.header("Accept", SmileCodecCapability.SMILE, "application/json;q=0.9");
+    }
+}
@@ -0,0 +1,98 @@
+package com.hmall.api.config;
+
+import com.hmall.api.transport.ConnectionMetricsListener;
+import com.hmall.api.transport.FeignTransportInterceptor;
+import com.hmall.api.transport.OkHttpTransportInterceptor;
+import feign.Request;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.openfeign.FeignAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feign 的连接层配置
+ * <p>
+ * 开启 feign.okhttp.enabled 后，所有 @FeignClient 共用一个带连接池的 OkHttpClient：连接保活复用，
+ * 响应自动按gzip解压（下游开启 server.compression 即可），可选h2c多路复用，按服务名限制并发、按方法设置读超时，
+ * 并暴露连接池和获取连接耗时的监控指标。
+ * 超时只由 hm.feign.transport 配置：Feign 的 Request.Options 与共享客户端的超时一致时才直接使用该客户端，
+ * 不一致时 feign-okhttp 会为每次调用新建一个客户端，所以不要再通过 feign.client.config 设置超时，按方法的读超时用 method-timeouts 配置。
+ * </p>
+ */
+@Configuration
+@ConditionalOnClass(feign.okhttp.OkHttpClient.class)
+@ConditionalOnProperty(value = "feign.okhttp.enabled", havingValue = "true")
+@AutoConfigureBefore(FeignAutoConfiguration.class)
+@EnableConfigurationProperties(FeignTransportProperties.class)
+public class FeignTransportConfig {
+
+    @Bean(destroyMethod = "evictAll")
+    public ConnectionPool feignConnectionPool(FeignTransportProperties properties,
+                                              ObjectProvider<MeterRegistry> meterRegistry) {
+        ConnectionPool pool = new ConnectionPool(properties.getMaxIdleConnections(),
+                properties.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS);
+        meterRegistry.ifAvailable(registry -> {
+            Gauge.builder("hm.feign.pool.connections", pool, ConnectionPool::connectionCount)
+                    .description("连接池中的连接数")
+                    .register(registry);
+            Gauge.builder("hm.feign.pool.idle", pool, ConnectionPool::idleConnectionCount)
+                    .description("连接池中的空闲连接数")
+                    .register(registry);
+        });
+        return pool;
+    }
+
+    @Bean
+    public OkHttpTransportInterceptor okHttpTransportInterceptor(FeignTransportProperties properties,
+                                                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        OkHttpTransportInterceptor interceptor = new OkHttpTransportInterceptor(properties);
+        meterRegistry.ifAvailable(interceptor::bindTo);
+        return interceptor;
+    }
+
+    @Bean
+    public FeignTransportInterceptor feignTransportInterceptor(FeignTransportProperties properties) {
+        return new FeignTransportInterceptor(properties);
+    }
+
+    /**
+     * 所有 @FeignClient 共用的请求参数，超时和重定向设置与 feignOkHttpClient 保持一致，避免每次调用新建客户端
+     */
+    @Bean
+    public Request.Options feignRequestOptions(FeignTransportProperties properties) {
+        return new Request.Options(properties.getConnectTimeout().toMillis(), TimeUnit.MILLISECONDS,
+                properties.getReadTimeout().toMillis(), TimeUnit.MILLISECONDS, false);
+    }
+
+    @Bean
+    public OkHttpClient feignOkHttpClient(ConnectionPool feignConnectionPool, FeignTransportProperties properties,
+                                          OkHttpTransportInterceptor okHttpTransportInterceptor,
+                                          ObjectProvider<MeterRegistry> meterRegistry) {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(feignConnectionPool)
+                .connectTimeout(properties.getConnectTimeout())
+                .readTimeout(properties.getReadTimeout())
+                .writeTimeout(properties.getWriteTimeout())
+                .retryOnConnectionFailure(false)
+                // 与 feignRequestOptions 一致
+                .followRedirects(false)
+                .addInterceptor(okHttpTransportInterceptor);
+        if (properties.isHttp2()) {
+            builder.protocols(Collections.singletonList(Protocol.H2_PRIOR_KNOWLEDGE));
+        }
+        meterRegistry.ifAvailable(registry -> builder.eventListenerFactory(ConnectionMetricsListener.factory(registry)));
+        return builder.build();
+    }
+}
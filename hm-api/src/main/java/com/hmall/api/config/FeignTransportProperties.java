@@ -0,0 +1,57 @@
+package com.hmall.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "hm.feign.transport")
+public class FeignTransportProperties {
+    /**
+     * 连接池中最多保留的空闲连接数
+     */
+    private int maxIdleConnections = 64;
+    /**
+     * 空闲连接的保活时间
+     */
+    private Duration keepAlive = Duration.ofMinutes(5);
+    /**
+     * 建立连接超时时间，同时作为 Feign 的 Request.Options
+     */
+    private Duration connectTimeout = Duration.ofSeconds(1);
+    /**
+     * 默认的读超时时间，同时作为 Feign 的 Request.Options，单个方法的读超时用 clients.*.method-timeouts 配置
+     */
+    private Duration readTimeout = Duration.ofSeconds(5);
+    /**
+     * 默认的写超时时间
+     */
+    private Duration writeTimeout = Duration.ofSeconds(5);
+    /**
+     * 使用明文HTTP/2（h2c prior knowledge）在一条连接上多路复用请求，要求所有下游服务开启 server.http2.enabled
+     */
+    private boolean http2 = false;
+    /**
+     * 按服务名配置的限制，key为 @FeignClient 的服务名
+     */
+    private Map<String, Client> clients = new HashMap<>();
+
+    @Data
+    public static class Client {
+        /**
+         * 对该服务的最大并发请求数，0表示不限制
+         */
+        private int maxConcurrentRequests = 0;
+        /**
+         * 达到最大并发数时等待的最长时间，超时后请求失败
+         */
+        private Duration acquireTimeout = Duration.ofMillis(500);
+        /**
+         * 按方法名配置的读超时时间，key为 Feign 接口中的方法名
+         */
+        private Map<String, Duration> methodTimeouts = new HashMap<>();
+    }
+}
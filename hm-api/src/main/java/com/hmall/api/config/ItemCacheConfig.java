@@ -0,0 +1,28 @@
+package com.hmall.api.config;
+
+import com.hmall.api.cache.ItemCache;
+import com.hmall.api.client.ItemClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * 商品本地缓存配置，只有 hm.item-cache.enabled=true 时才创建缓存和它的刷新线程
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "hm.item-cache", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ItemCacheProperties.class)
+public class ItemCacheConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ItemCache itemCache(@Lazy ItemClient itemClient, ItemCacheProperties properties,
+                               ObjectProvider<MeterRegistry> meterRegistry) {
+        ItemCache itemCache = new ItemCache(itemClient, properties);
+        meterRegistry.ifAvailable(itemCache::bindTo);
+        return itemCache;
+    }
+}
@@ -0,0 +1,31 @@
+package com.hmall.api.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "hm.item-cache")
+public class ItemCacheProperties {
+    /**
+     * 是否创建商品本地缓存，默认关闭，只在需要查询商品的服务（cart-service、trade-service）中开启
+     */
+    private boolean enabled = false;
+    /**
+     * 最多缓存的商品数量
+     */
+    private long maximumSize = 10000;
+    /**
+     * 缓存条目的最长存活时间，超过后必须重新查询
+     */
+    private Duration ttl = Duration.ofMinutes(1);
+    /**
+     * 展示场景（库存、状态）的新鲜度，超过后先返回旧值，再异步刷新
+     */
+    private Duration stockFreshness = Duration.ofSeconds(5);
+    /**
+     * 计价场景的新鲜度，超过后必须同步查询最新价格，默认0表示每次都查询
+     */
+    private Duration priceFreshness = Duration.ZERO;
+}
@@ -0,0 +1,22 @@
+package com.hmall.api.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@ApiModel(description = "删除某个用户购物车中的商品")
+public class CartItemsDeleteDTO {
+    @ApiModelProperty("用户id")
+    private Long userId;
+    @ApiModelProperty("要删除的商品id")
+    private List<Long> itemIds;
+    @ApiModelProperty("幂等键，同一个键只删除一次，为空时不去重")
+    private String eventKey;
+}
@@ -0,0 +1,51 @@
+package com.hmall.api.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Data;
+
+import java.util.Collections;
+import java.util.List;
+
+@Data
+@ApiModel(description = "库存预占结果")
+public class StockReserveResultDTO {
+    @ApiModelProperty("是否预占成功，失败时所有明细都不扣减")
+    private boolean success;
+    @ApiModelProperty("库存不足的明细")
+    private List<StockShortageDTO> shortages = Collections.emptyList();
+    @ApiModelProperty("不存在或已删除的商品id")
+    private List<Long> missingItemIds = Collections.emptyList();
+    @ApiModelProperty("预占已被取消，同一预占id不能再预占")
+    private boolean conflict;
+    @ApiModelProperty("库存竞争激烈，重试后仍未能扣减也未能确定缺口，没有扣减任何库存，可以稍后重试")
+    private boolean busy;
+
+    public static StockReserveResultDTO ok() {
+        StockReserveResultDTO result = new StockReserveResultDTO();
+        result.setSuccess(true);
+        return result;
+    }
+
+    public static StockReserveResultDTO rejected(List<StockShortageDTO> shortages, List<Long> missingItemIds) {
+        StockReserveResultDTO result = new StockReserveResultDTO();
+        result.setSuccess(false);
+        result.setShortages(shortages);
+        result.setMissingItemIds(missingItemIds);
+        return result;
+    }
+
+    public static StockReserveResultDTO conflict() {
+        StockReserveResultDTO result = new StockReserveResultDTO();
+        result.setSuccess(false);
+        result.setConflict(true);
+        return result;
+    }
+
+    public static StockReserveResultDTO busy() {
+        StockReserveResultDTO result = new StockReserveResultDTO();
+        result.setSuccess(false);
+        result.setBusy(true);
+        return result;
+    }
+}
@@ -0,0 +1,20 @@
+package com.hmall.api.dto;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@ApiModel(description = "库存不足的订单明细")
+public class StockShortageDTO {
+    @ApiModelProperty("商品id")
+    private Long itemId;
+    @ApiModelProperty("需要的数量")
+    private Integer required;
+    @ApiModelProperty("当前可用库存")
+    private Integer available;
+}
@@ -0,0 +1,44 @@
+package com.hmall.api.transport;
+
+import java.io.IOException;
+
+/**
+ * 对某个服务的并发请求数已达上限，请求没有发出
+ * <p>
+ * 与超时、连接断开不同，对方一定没有收到请求，调用方可以直接快速失败，也可以安全地重试，不需要任何补偿。
+ * Feign 会把它包装在 RetryableException 中，调用方用 {@link #isCauseOf(Throwable)} 判断。
+ * </p>
+ */
+public class ConcurrencyLimitExceededException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String client;
+
+    public ConcurrencyLimitExceededException(String client) {
+        super("对" + client + "的并发请求数已达上限");
+        this.client = client;
+    }
+
+    public String getClient() {
+        return client;
+    }
+
+    /**
+     * 判断异常是否因并发请求数已达上限、请求没有发出而导致
+     *
+     * @param e 调用远程服务抛出的异常
+     * @return 异常链中是否包含 ConcurrencyLimitExceededException
+     */
+    public static boolean isCauseOf(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConcurrencyLimitExceededException) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+}
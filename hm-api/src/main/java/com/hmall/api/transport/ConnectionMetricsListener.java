@@ -0,0 +1,52 @@
+package com.hmall.api.transport;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录每次请求从开始到拿到连接的耗时，以及新建连接的次数，用于判断连接池是否不足
+ */
+public class ConnectionMetricsListener extends EventListener {
+
+    private final Timer acquireTimer;
+    private final Counter connectCounter;
+    private long callStart;
+
+    private ConnectionMetricsListener(Timer acquireTimer, Counter connectCounter) {
+        this.acquireTimer = acquireTimer;
+        this.connectCounter = connectCounter;
+    }
+
+    public static EventListener.Factory factory(MeterRegistry registry) {
+        Timer acquireTimer = Timer.builder("hm.feign.connection.acquire")
+                .description("请求获取连接的耗时，包含新建连接")
+                .register(registry);
+        Counter connectCounter = Counter.builder("hm.feign.connection.created")
+                .description("新建连接的次数，连接池命中时不增加")
+                .register(registry);
+        return call -> new ConnectionMetricsListener(acquireTimer, connectCounter);
+    }
+
+    @Override
+    public void callStart(Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectCounter.increment();
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        acquireTimer.record(System.nanoTime() - callStart, TimeUnit.NANOSECONDS);
+    }
+}
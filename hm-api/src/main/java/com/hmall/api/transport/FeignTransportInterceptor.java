@@ -0,0 +1,63 @@
+package com.hmall.api.transport;
+
+import com.hmall.api.config.FeignTransportProperties;
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 在 Feign 请求上标记目标服务名和方法的读超时时间，供 {@link OkHttpTransportInterceptor} 在连接层使用。
+ * 负载均衡后请求地址变成了实例的ip和端口，只能通过这种方式把服务名传递下去，标记头不会发送给下游服务
+ */
+public class FeignTransportInterceptor implements RequestInterceptor {
+
+    static final String CLIENT_HEADER = "X-Hm-Feign-Client";
+    static final String TIMEOUT_HEADER = "X-Hm-Feign-Timeout";
+
+    private final FeignTransportProperties properties;
+
+    public FeignTransportInterceptor(FeignTransportProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public void apply(RequestTemplate template) {
+        if (template.feignTarget() == null) {
+            return;
+        }
+        String client = template.feignTarget().name();
+        template.header(CLIENT_HEADER, client);
+        // 方法级的读超时
+        FeignTransportProperties.Client config = properties.getClients().get(client);
+        if (config == null || config.getMethodTimeouts().isEmpty() || template.methodMetadata() == null) {
+            return;
+        }
+        String method = template.methodMetadata().method().getName();
+        Duration timeout = findTimeout(config.getMethodTimeouts(), method);
+        if (timeout != null) {
+            template.header(TIMEOUT_HEADER, String.valueOf(timeout.toMillis()));
+        }
+    }
+
+    private static Duration findTimeout(Map<String, Duration> timeouts, String method) {
+        Duration timeout = timeouts.get(method);
+        if (timeout != null) {
+            return timeout;
+        }
+        // 配置文件中的key可能被转成小写或短横线形式
+        String normalized = normalize(method);
+        for (Map.Entry<String, Duration> e : timeouts.entrySet()) {
+            if (normalize(e.getKey()).equals(normalized)) {
+                return e.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static String normalize(String name) {
+        return name.replace("-", "").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,194 @@
+package com.hmall.api.transport;
+
+import com.hmall.api.config.FeignTransportProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 连接层的拦截器：按服务名限制并发请求数，应用方法级的读超时，并移除 {@link FeignTransportInterceptor} 添加的标记头
+ * <p>
+ * 并发许可从发出请求一直持有到响应体被关闭，读取响应体的时间也计入并发；
+ * 等待许可超时抛出 {@link ConcurrencyLimitExceededException}，表示请求没有发出。
+ * </p>
+ */
+public class OkHttpTransportInterceptor implements Interceptor {
+
+    private final FeignTransportProperties properties;
+    private final Map<String, Limiter> limiters = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    public OkHttpTransportInterceptor(FeignTransportProperties properties) {
+        this.properties = properties;
+    }
+
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String client = request.header(FeignTransportInterceptor.CLIENT_HEADER);
+        String timeout = request.header(FeignTransportInterceptor.TIMEOUT_HEADER);
+        if (client == null && timeout == null) {
+            return chain.proceed(request);
+        }
+        request = request.newBuilder()
+                .removeHeader(FeignTransportInterceptor.CLIENT_HEADER)
+                .removeHeader(FeignTransportInterceptor.TIMEOUT_HEADER)
+                .build();
+        // 1.方法级的读超时
+        if (timeout != null) {
+            chain = chain.withReadTimeout(Integer.parseInt(timeout), TimeUnit.MILLISECONDS);
+        }
+        // 2.按服务名限制并发
+        Limiter limiter = client == null ? null : limiter(client);
+        if (limiter == null) {
+            return chain.proceed(request);
+        }
+        limiter.acquire();
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException | RuntimeException e) {
+            limiter.permits.release();
+            throw e;
+        }
+        // 3.响应体读完关闭后才归还许可
+        ResponseBody body = response.body();
+        if (body == null) {
+            limiter.permits.release();
+            return response;
+        }
+        return response.newBuilder().body(new PermitReleasingBody(body, limiter.permits)).build();
+    }
+
+    private Limiter limiter(String client) {
+        FeignTransportProperties.Client config = properties.getClients().get(client);
+        if (config == null || config.getMaxConcurrentRequests() <= 0) {
+            return null;
+        }
+        return limiters.computeIfAbsent(client, c -> new Limiter(c, config, registry));
+    }
+
+    private static class Limiter {
+        private final String client;
+        private final Semaphore permits;
+        private final long acquireTimeoutNanos;
+        private final Timer waitTimer;
+
+        private Limiter(String client, FeignTransportProperties.Client config, MeterRegistry registry) {
+            this.client = client;
+            this.permits = new Semaphore(config.getMaxConcurrentRequests());
+            this.acquireTimeoutNanos = config.getAcquireTimeout().toNanos();
+            if (registry == null) {
+                this.waitTimer = null;
+                return;
+            }
+            int max = config.getMaxConcurrentRequests();
+            Gauge.builder("hm.feign.client.in-flight", permits, p -> max - p.availablePermits())
+                    .description("正在执行的远程请求数")
+                    .tag("client", client)
+                    .register(registry);
+            Gauge.builder("hm.feign.client.saturation", permits, p -> (double) (max - p.availablePermits()) / max)
+                    .description("正在执行的远程请求数占最大并发数的比例")
+                    .tag("client", client)
+                    .register(registry);
+            this.waitTimer = Timer.builder("hm.feign.client.permit.wait")
+                    .description("等待并发许可的耗时")
+                    .tag("client", client)
+                    .register(registry);
+        }
+
+        private void acquire() throws IOException {
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待并发许可被中断：" + client);
+            }
+            if (waitTimer != null) {
+                waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            if (!acquired) {
+                throw new ConcurrencyLimitExceededException(client);
+            }
+        }
+    }
+
+    /**
+     * 关闭时归还并发许可的响应体，重复关闭只归还一次
+     */
+    private static class PermitReleasingBody extends ResponseBody {
+        private final ResponseBody delegate;
+        private final Semaphore permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private BufferedSource source;
+
+        private PermitReleasingBody(ResponseBody delegate, Semaphore permits) {
+            this.delegate = delegate;
+            this.permits = permits;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            if (source == null) {
+                source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            release();
+                        }
+                    }
+                });
+            }
+            return source;
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+}
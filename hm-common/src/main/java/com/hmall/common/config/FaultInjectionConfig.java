@@ -0,0 +1,32 @@
+package com.hmall.common.config;
+
+import com.hmall.common.interceptor.FaultInjectionInterceptor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * 故障注入配置，只有 hm.fault-injection.enabled=true 时才会注册拦截器，默认不影响请求链路
+ */
+@Configuration
+@ConditionalOnClass(DispatcherServlet.class)
+@ConditionalOnProperty(prefix = "hm.fault-injection", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(FaultInjectionProperties.class)
+public class FaultInjectionConfig implements WebMvcConfigurer {
+
+    private final FaultInjectionProperties properties;
+
+    public FaultInjectionConfig(FaultInjectionProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // 放在最前面，让延迟覆盖整个处理过程
+        registry.addInterceptor(new FaultInjectionInterceptor(properties)).order(Integer.MIN_VALUE);
+    }
+}
@@ -0,0 +1,49 @@
+package com.hmall.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "hm.fault-injection")
+public class FaultInjectionProperties {
+    /**
+     * 是否启用故障注入，默认关闭，仅用于容错测试
+     */
+    private boolean enabled = false;
+    /**
+     * 故障注入规则，按顺序匹配，命中第一条后不再继续匹配
+     */
+    private List<Rule> rules = new ArrayList<>();
+
+    @Data
+    public static class Rule {
+        /**
+         * 请求路径，支持Ant风格通配符，例如 /items/**
+         */
+        private String path;
+        /**
+         * 请求方式，为空表示匹配所有请求方式
+         */
+        private String method;
+        /**
+         * 注入的延迟时间
+         */
+        private Duration delay = Duration.ZERO;
+        /**
+         * 注入延迟的比例，取值0~1
+         */
+        private double delayRate = 0;
+        /**
+         * 注入异常的比例，取值0~1
+         */
+        private double errorRate = 0;
+        /**
+         * 注入异常时返回的状态码
+         */
+        private int errorStatus = 500;
+    }
+}
@@ -0,0 +1,28 @@
+package com.hmall.common.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Smile（二进制JSON）消息转换器，只用于服务之间的调用
+ * <p>
+ * 请求的 Accept 或 Content-Type 为 application/x-jackson-smile 时才会使用，浏览器的请求仍然是JSON。
+ * 转换器与默认的同类型，SpringBoot 会把它放在JSON转换器之后，Accept 为 *&#47;* 时不会被选中。
+ * 与JSON不同，Long 不会被转成字符串，时间类型按时间戳序列化，调用双方都使用这个配置即可。
+ * </p>
+ */
+@Configuration
+@ConditionalOnClass({SmileFactory.class, MappingJackson2SmileHttpMessageConverter.class})
+public class SmileConfig {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter() {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.smile().build();
+        return new MappingJackson2SmileHttpMessageConverter(mapper);
+    }
+}
@@ -0,0 +1,34 @@
+package com.hmall.common.config;
+
+import com.hmall.common.context.UserContextTaskDecorator;
+import com.hmall.common.context.UserInfoFeignInterceptor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.servlet.DispatcherServlet;
+
+/**
+ * 用户信息的传递：Spring 的默认线程池（@Async）通过 TaskDecorator 传递，Feign 调用通过 user-info 请求头传递
+ */
+@Configuration
+@ConditionalOnClass(DispatcherServlet.class)
+public class UserContextConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(TaskDecorator.class)
+    public UserContextTaskDecorator userContextTaskDecorator() {
+        return new UserContextTaskDecorator();
+    }
+
+    @Configuration
+    @ConditionalOnClass(name = "feign.RequestInterceptor")
+    static class FeignUserInfoConfig {
+
+        @Bean
+        public UserInfoFeignInterceptor userInfoFeignInterceptor() {
+            return new UserInfoFeignInterceptor();
+        }
+    }
+}
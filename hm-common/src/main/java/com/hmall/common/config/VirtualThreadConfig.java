@@ -0,0 +1,61 @@
+package com.hmall.common.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程模式，只有 hm.threads.virtual.enabled=true 时生效
+ * <p>
+ * 开启后Tomcat为每个请求创建一个虚拟线程，请求中同步的Feign调用、数据库访问阻塞时只挂起虚拟线程，不再占用有限的Tomcat线程。
+ * 项目以Java 11编译，虚拟线程执行器通过反射创建，运行时JDK低于21时打印警告并保留原来的线程池。
+ * UserContext 基于ThreadLocal，每个请求独占一个虚拟线程，由 UserInfoInterceptor 设置和清理，无需额外处理；
+ * 交给其它线程池的任务仍需通过 UserContextTaskDecorator 或 UserContextExecutors 传递用户。
+ * 注意在JDK 21中，阻塞在 synchronized 代码块内的虚拟线程会占住载体线程，连接池等资源的上限仍然是吞吐的上限。
+ * </p>
+ */
+@Slf4j
+@Configuration
+@ConditionalOnClass({Tomcat.class, DispatcherServlet.class})
+@ConditionalOnProperty(prefix = "hm.threads.virtual", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(VirtualThreadProperties.class)
+public class VirtualThreadConfig implements TomcatProtocolHandlerCustomizer<ProtocolHandler>, DisposableBean {
+
+    private final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+
+    @Override
+    public void customize(ProtocolHandler protocolHandler) {
+        if (executor != null) {
+            protocolHandler.setExecutor(executor);
+            log.info("Tomcat使用虚拟线程处理请求");
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            log.warn("当前JDK版本为{}，不支持虚拟线程，继续使用Tomcat线程池", System.getProperty("java.version"));
+            return null;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("创建虚拟线程执行器失败", e);
+        }
+    }
+}
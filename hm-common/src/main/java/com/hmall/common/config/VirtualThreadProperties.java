@@ -0,0 +1,13 @@
+package com.hmall.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "hm.threads.virtual")
+public class VirtualThreadProperties {
+    /**
+     * 是否用虚拟线程处理请求，默认关闭，运行时JDK低于21时即使开启也继续使用Tomcat线程池
+     */
+    private boolean enabled = false;
+}
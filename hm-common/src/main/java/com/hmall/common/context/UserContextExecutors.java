@@ -0,0 +1,130 @@
+package com.hmall.common.context;
+
+import com.hmall.common.utils.UserContext;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * 传递用户信息的线程池包装
+ * <p>
+ * 包装后的线程池在提交任务时记录当前用户，执行任务时设置、执行完后清理，任务之间不会串用户。
+ * 可以包装任意线程池，包括 JDK 21 的 Executors.newVirtualThreadPerTaskExecutor()。
+ * </p>
+ */
+public final class UserContextExecutors {
+
+    private UserContextExecutors() {
+    }
+
+    /**
+     * 包装Executor，可直接用于 CompletableFuture 的 xxxAsync 方法
+     */
+    public static Executor wrap(Executor executor) {
+        if (executor instanceof UserContextExecutorService) {
+            return executor;
+        }
+        if (executor instanceof ExecutorService) {
+            return wrap((ExecutorService) executor);
+        }
+        return task -> executor.execute(UserContext.wrap(task));
+    }
+
+    /**
+     * 包装ExecutorService
+     */
+    public static ExecutorService wrap(ExecutorService executor) {
+        if (executor instanceof UserContextExecutorService) {
+            return executor;
+        }
+        return new UserContextExecutorService(executor);
+    }
+
+    private static final class UserContextExecutorService extends AbstractExecutorService {
+        private final ExecutorService delegate;
+
+        private UserContextExecutorService(ExecutorService delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(UserContext.wrap(command));
+        }
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            return delegate.submit(UserContext.wrapCallable(task));
+        }
+
+        @Override
+        public Future<?> submit(Runnable task) {
+            return delegate.submit(UserContext.wrap(task));
+        }
+
+        @Override
+        public <T> Future<T> submit(Runnable task, T result) {
+            return delegate.submit(UserContext.wrap(task), result);
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+            return delegate.invokeAll(wrapAll(tasks));
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+                throws InterruptedException {
+            return delegate.invokeAll(wrapAll(tasks), timeout, unit);
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+            return delegate.invokeAny(wrapAll(tasks));
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            return delegate.invokeAny(wrapAll(tasks), timeout, unit);
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+
+        private static <T> List<Callable<T>> wrapAll(Collection<? extends Callable<T>> tasks) {
+            return tasks.stream().map(UserContext::wrapCallable).collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.hmall.common.context;
+
+import com.hmall.common.utils.UserContext;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * 把提交任务的线程上的用户传递到执行任务的线程，用于 ThreadPoolTaskExecutor 和 @Async
+ */
+public class UserContextTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        return UserContext.wrap(runnable);
+    }
+}
@@ -0,0 +1,23 @@
+package com.hmall.common.context;
+
+import com.hmall.common.utils.UserContext;
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+
+/**
+ * Feign调用时把当前用户放到 user-info 请求头中，下游服务的 UserInfoInterceptor 据此恢复 UserContext
+ */
+public class UserInfoFeignInterceptor implements RequestInterceptor {
+
+    public static final String USER_INFO_HEADER = "user-info";
+
+    @Override
+    public void apply(RequestTemplate template) {
+        Long userId = UserContext.getUser();
+        // 调用方已显式指定时不覆盖
+        if (userId == null || template.headers().containsKey(USER_INFO_HEADER)) {
+            return;
+        }
+        template.header(USER_INFO_HEADER, userId.toString());
+    }
+}
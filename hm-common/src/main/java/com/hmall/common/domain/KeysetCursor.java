@@ -0,0 +1,118 @@
+package com.hmall.common.domain;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.interfaces.Join;
+import com.hmall.common.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Pattern;
+
+/**
+ * 游标分页的续页令牌，记录上一页最后一条数据的排序字段值和id
+ * <p>
+ * 令牌对前端不透明，内容为排序字段、排序方向、id和排序字段值，经Base64编码。
+ * 下一页的查询条件为 (排序字段, id) 严格排在令牌之后，与MySQL中升序NULL在前、降序NULL在后的规则一致。
+ * </p>
+ */
+public class KeysetCursor {
+
+    private static final Pattern COLUMN_PATTERN = Pattern.compile("^[a-zA-Z_][a-zA-Z0-9_]*$");
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+    private static final String ID_COLUMN = "id";
+
+    private final String column;
+    private final boolean asc;
+    private final Long id;
+    private final String value;
+
+    private KeysetCursor(String column, boolean asc, Long id, String value) {
+        this.column = column;
+        this.asc = asc;
+        this.id = id;
+        this.value = value;
+    }
+
+    /**
+     * 根据一页的最后一条数据生成令牌
+     *
+     * @param column 排序字段
+     * @param asc    是否升序
+     * @param id     最后一条数据的id
+     * @param value  最后一条数据的排序字段值
+     * @return 令牌
+     */
+    public static String encode(String column, boolean asc, Long id, Object value) {
+        String v = value == null ? "n" : "v" + format(value);
+        String raw = StrUtil.join("|", column, asc ? 1 : 0, id, v);
+        return Base64.encodeUrlSafe(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析令牌
+     *
+     * @param token 令牌
+     * @return 游标
+     */
+    public static KeysetCursor decode(String token) {
+        try {
+            String[] parts = Base64.decodeStr(token, StandardCharsets.UTF_8).split("\\|", 4);
+            String v = parts[3];
+            return new KeysetCursor(parts[0], "1".equals(parts[1]), Long.valueOf(parts[2]),
+                    v.startsWith("v") ? v.substring(1) : null);
+        } catch (RuntimeException e) {
+            throw new BadRequestException("无效的分页游标");
+        }
+    }
+
+    /**
+     * 校验排序字段，排序字段会拼接到SQL中，只允许字母、数字和下划线
+     *
+     * @param column 排序字段
+     */
+    public static void checkColumn(String column) {
+        if (column == null || !COLUMN_PATTERN.matcher(column).matches()) {
+            throw new BadRequestException("排序字段不合法");
+        }
+    }
+
+    /**
+     * 在查询条件中追加“排在游标之后”的条件
+     *
+     * @param wrapper 查询条件
+     * @param column  当前查询的排序字段
+     * @param asc     当前查询是否升序
+     */
+    public <W extends Join<W>> void apply(W wrapper, String column, boolean asc) {
+        // 1.令牌必须来自同一种排序，否则翻页结果会错乱
+        if (!this.column.equals(column) || this.asc != asc) {
+            throw new BadRequestException("分页游标与排序条件不匹配");
+        }
+        String op = asc ? ">" : "<";
+        // 2.按id排序，直接比较id
+        if (ID_COLUMN.equals(column)) {
+            wrapper.apply("id " + op + " {0}", id);
+            return;
+        }
+        // 3.排序字段值相同的数据再按id排序
+        if (value == null) {
+            wrapper.apply(asc
+                    ? "((" + column + " IS NULL AND id > {0}) OR " + column + " IS NOT NULL)"
+                    : "(" + column + " IS NULL AND id < {0})", id);
+        } else {
+            wrapper.apply(asc
+                    ? "(" + column + " > {0} OR (" + column + " = {0} AND id > {1}))"
+                    : "(" + column + " < {0} OR (" + column + " = {0} AND id < {1}) OR " + column + " IS NULL)",
+                    value, id);
+        }
+    }
+
+    private static String format(Object value) {
+        if (value instanceof LocalDateTime) {
+            return DATE_TIME_FORMATTER.format((LocalDateTime) value);
+        }
+        return value.toString();
+    }
+}
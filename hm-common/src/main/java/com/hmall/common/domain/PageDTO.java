@@ -1,6 +1,7 @@
 package com.hmall.common.domain;
 
 
+import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.hmall.common.utils.BeanUtils;
 import com.hmall.common.utils.CollUtils;
@@ -20,6 +21,16 @@ public class PageDTO<T> {
     protected Long total;
     protected Long pages;
     protected List<T> list;
+    /**
+     * 游标分页时下一页的令牌，为null表示没有下一页
+     */
+    protected String next;
+
+    public PageDTO(Long total, Long pages, List<T> list) {
+        this.total = total;
+        this.pages = pages;
+        this.list = list;
+    }
 
     public static <T> PageDTO<T> empty(Long total, Long pages) {
         return new PageDTO<>(total, pages, CollUtils.emptyList());
@@ -58,4 +69,32 @@ public class PageDTO<T> {
     public static <T, R> PageDTO<T> of(Page<R> page, Class<T> clazz, Convert<R, T> convert) {
         return new PageDTO<>(page.getTotal(), page.getPages(), BeanUtils.copyList(page.getRecords(), clazz, convert));
     }
+
+    /**
+     * 封装游标分页的结果，page 需由 {@link PageQuery#toMpKeysetPage} 创建
+     *
+     * @param page  分页结果，比一页多查了一条
+     * @param query 分页参数
+     * @param clazz 目标类型
+     * @return 分页结果，未统计总条数时 total 和 pages 为null
+     */
+    public static <T, R> PageDTO<T> ofKeyset(Page<R> page, PageQuery query, Class<T> clazz) {
+        List<R> records = page.getRecords();
+        String next = null;
+        // 1.多查出的一条说明还有下一页
+        if (records.size() > query.getPageSize()) {
+            records = records.subList(0, query.getPageSize());
+            next = query.nextCursor(records.get(records.size() - 1));
+        }
+        // 2.只有统计了总条数才返回总页数
+        Long total = null;
+        Long pages = null;
+        if (StrUtil.isEmpty(query.getCursor()) && Boolean.TRUE.equals(query.getNeedTotal())) {
+            total = page.getTotal();
+            pages = (total + query.getPageSize() - 1) / query.getPageSize();
+        }
+        PageDTO<T> dto = new PageDTO<>(total, pages, BeanUtils.copyList(records, clazz));
+        dto.setNext(next);
+        return dto;
+    }
 }
@@ -1,6 +1,8 @@
 package com.hmall.common.domain;
 
+import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.interfaces.Join;
 import com.baomidou.mybatisplus.core.metadata.OrderItem;
 import com.baomidou.mybatisplus.core.toolkit.StringUtils;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
@@ -14,12 +16,22 @@ import javax.validation.constraints.Min;
 public class PageQuery {
     public static final Integer DEFAULT_PAGE_SIZE = 20;
     public static final Integer DEFAULT_PAGE_NUM = 1;
+    // 分页插件单页最多1000条，游标分页需要多查一条
+    private static final int MAX_KEYSET_PAGE_SIZE = 999;
     @Min(value = 1, message = "页码不能小于1")
     private Integer pageNo = DEFAULT_PAGE_NUM;
     @Min(value = 1, message = "每页查询数量不能小于1")
     private Integer pageSize = DEFAULT_PAGE_SIZE;
     private Boolean isAsc = true;
     private String sortBy;
+    /**
+     * 游标分页的续页令牌，为null时按页码分页，为空字符串时查询游标分页的第一页
+     */
+    private String cursor;
+    /**
+     * 游标分页时是否查询总条数，只在第一页查询；后续页不再统计，返回的 total、pages 为null，由前端沿用第一页的结果
+     */
+    private Boolean needTotal = false;
 
     public int from(){
         return (pageNo - 1) * pageSize;
@@ -59,4 +71,55 @@ public class PageQuery {
     public <T> Page<T> toMpPageDefaultSortByCreateTimeDesc() {
         return toMpPage("create_time", false);
     }
+
+    /**
+     * 是否使用游标分页
+     */
+    public boolean isKeyset() {
+        return cursor != null;
+    }
+
+    /**
+     * 游标分页，查询条件中追加“排在游标之后”的条件，不再使用OFFSET，翻到多深都只扫描一页数据
+     *
+     * @param wrapper       查询条件
+     * @param defaultSortBy 前端未指定排序字段时的默认排序字段
+     * @param isAsc         默认是否升序
+     * @return 固定查询第一页的分页对象，多查一条用于判断是否还有下一页
+     */
+    public <T, W extends Join<W>> Page<T> toMpKeysetPage(W wrapper, String defaultSortBy, boolean isAsc) {
+        // 1.确定排序规则
+        if (StringUtils.isBlank(sortBy)) {
+            sortBy = defaultSortBy;
+            this.isAsc = isAsc;
+        }
+        KeysetCursor.checkColumn(sortBy);
+        boolean asc = !Boolean.FALSE.equals(this.isAsc);
+        pageSize = Math.min(pageSize, MAX_KEYSET_PAGE_SIZE);
+        // 2.只有第一页按需统计总条数
+        boolean firstPage = StrUtil.isEmpty(cursor);
+        Page<T> page = new Page<>(1, pageSize + 1, firstPage && Boolean.TRUE.equals(needTotal));
+        // 3.按排序字段和id排序，保证顺序唯一
+        page.addOrder(asc ? OrderItem.asc(sortBy) : OrderItem.desc(sortBy));
+        if (!"id".equals(sortBy)) {
+            page.addOrder(asc ? OrderItem.asc("id") : OrderItem.desc("id"));
+        }
+        // 4.追加游标条件
+        if (!firstPage) {
+            KeysetCursor.decode(cursor).apply(wrapper, sortBy, asc);
+        }
+        return page;
+    }
+
+    /**
+     * 根据一页的最后一条数据生成下一页的令牌
+     *
+     * @param last 最后一条数据，需要有id属性和排序字段对应的属性
+     * @return 令牌
+     */
+    public String nextCursor(Object last) {
+        Object value = BeanUtil.getProperty(last, StrUtil.toCamelCase(sortBy));
+        Long id = BeanUtil.getProperty(last, "id");
+        return KeysetCursor.encode(sortBy, !Boolean.FALSE.equals(isAsc), id, value);
+    }
 }
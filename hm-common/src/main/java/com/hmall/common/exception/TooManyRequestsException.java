@@ -0,0 +1,16 @@
+package com.hmall.common.exception;
+
+public class TooManyRequestsException extends CommonException{
+
+    public TooManyRequestsException(String message) {
+        super(message, 429);
+    }
+
+    public TooManyRequestsException(String message, Throwable cause) {
+        super(message, cause, 429);
+    }
+
+    public TooManyRequestsException(Throwable cause) {
+        super(cause, 429);
+    }
+}
@@ -0,0 +1,60 @@
+package com.hmall.common.interceptor;
+
+import com.hmall.common.config.FaultInjectionProperties;
+import com.hmall.common.exception.CommonException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 故障注入拦截器，按配置的规则给匹配的请求注入延迟或异常，用于测试调用方的降级和超时
+ */
+@Slf4j
+public class FaultInjectionInterceptor implements HandlerInterceptor {
+
+    private final FaultInjectionProperties properties;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public FaultInjectionInterceptor(FaultInjectionProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        // 1.查找匹配的规则
+        FaultInjectionProperties.Rule rule = findRule(request);
+        if (rule == null) {
+            return true;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // 2.注入延迟
+        long delay = rule.getDelay().toMillis();
+        if (delay > 0 && random.nextDouble() < rule.getDelayRate()) {
+            log.debug("故障注入：{} {} 延迟{}ms", request.getMethod(), request.getRequestURI(), delay);
+            Thread.sleep(delay);
+        }
+        // 3.注入异常
+        if (random.nextDouble() < rule.getErrorRate()) {
+            log.debug("故障注入：{} {} 返回{}", request.getMethod(), request.getRequestURI(), rule.getErrorStatus());
+            throw new CommonException("故障注入", rule.getErrorStatus());
+        }
+        return true;
+    }
+
+    private FaultInjectionProperties.Rule findRule(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (FaultInjectionProperties.Rule rule : properties.getRules()) {
+            if (rule.getMethod() != null && !rule.getMethod().equalsIgnoreCase(request.getMethod())) {
+                continue;
+            }
+            if (rule.getPath() != null && pathMatcher.match(rule.getPath(), path)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,347 @@
+package com.hmall.common.utils;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 编译式的属性拷贝器
+ * <p>
+ * 每对（原类型，目标类型）第一次拷贝时，通过 LambdaMetafactory 把 getter、setter 和无参构造函数生成为
+ * Function、BiConsumer、Supplier，之后的拷贝等同于手写的 getter/setter 调用，没有反射开销。
+ * 属性按 getter/setter 去掉 get、is、set 前缀后的名称匹配，支持链式 setter；类型不一致的属性使用 hutool 的 Convert 转换，
+ * 泛型参数不同的属性（如 List&lt;Item&gt; 到 List&lt;ItemDTO&gt;）也按目标的泛型类型转换元素，与 hutool 一致；
+ * null 不会写入基本类型的属性。无法生成访问器的类型（如不可访问的类或方法）返回null，由调用方退回 hutool。
+ * 生成的拷贝器按类型对缓存，随类卸载一起回收。
+ * </p>
+ */
+public final class BeanCopier<R, T> {
+
+    private static final ClassValue<Accessors> ACCESSORS = new ClassValue<Accessors>() {
+        @Override
+        protected Accessors computeValue(Class<?> type) {
+            return new Accessors(type);
+        }
+    };
+    private static final ClassValue<Map<Class<?>, Optional<BeanCopier<?, ?>>>> COPIERS =
+            new ClassValue<Map<Class<?>, Optional<BeanCopier<?, ?>>>>() {
+                @Override
+                protected Map<Class<?>, Optional<BeanCopier<?, ?>>> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+    private final Supplier<Object> constructor;
+    private final Property[] properties;
+
+    private BeanCopier(Supplier<Object> constructor, Property[] properties) {
+        this.constructor = constructor;
+        this.properties = properties;
+    }
+
+    /**
+     * 获取两个类型之间的拷贝器
+     *
+     * @param sourceClass 原对象类型
+     * @param targetClass 目标对象类型
+     * @return 拷贝器，目标类型没有可访问的无参构造函数、或有属性无法生成访问器时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public static <R, T> BeanCopier<R, T> of(Class<R> sourceClass, Class<T> targetClass) {
+        Optional<BeanCopier<?, ?>> copier = COPIERS.get(sourceClass)
+                .computeIfAbsent(targetClass, t -> Optional.ofNullable(create(sourceClass, t)));
+        return (BeanCopier<R, T>) copier.orElse(null);
+    }
+
+    /**
+     * 创建目标对象并拷贝属性
+     *
+     * @param source 原对象
+     * @return 目标对象
+     */
+    @SuppressWarnings("unchecked")
+    public T copy(R source) {
+        T target = (T) constructor.get();
+        copy(source, target);
+        return target;
+    }
+
+    /**
+     * 拷贝属性到已有的目标对象
+     *
+     * @param source 原对象
+     * @param target 目标对象
+     */
+    public void copy(R source, T target) {
+        for (Property p : properties) {
+            Object value = p.getter.apply(source);
+            if (value == null) {
+                if (p.primitive) {
+                    continue;
+                }
+            } else if (p.convert) {
+                value = cn.hutool.core.convert.Convert.convert(p.targetType, value);
+            }
+            p.setter.accept(target, value);
+        }
+    }
+
+    private static BeanCopier<?, ?> create(Class<?> sourceClass, Class<?> targetClass) {
+        Accessors target = ACCESSORS.get(targetClass);
+        if (target.constructor == null) {
+            return null;
+        }
+        // 1.按属性名匹配getter和setter
+        Accessors source = ACCESSORS.get(sourceClass);
+        List<Property> properties = new ArrayList<>();
+        for (Map.Entry<String, Method> e : target.setters.entrySet()) {
+            Method getter = source.getters.get(e.getKey());
+            if (getter == null) {
+                continue;
+            }
+            Method setter = e.getValue();
+            Class<?> from = wrap(getter.getReturnType());
+            Class<?> to = wrap(setter.getParameterTypes()[0]);
+            boolean primitive = setter.getParameterTypes()[0].isPrimitive();
+            // 2.生成访问器，无法生成时整个类型对退回 hutool
+            Function<Object, Object> getterFn = source.getter(getter);
+            BiConsumer<Object, Object> setterFn = target.setter(setter);
+            if (getterFn == null || setterFn == null) {
+                return null;
+            }
+            // 3.类型不兼容或泛型参数不同的属性需要转换
+            properties.add(new Property(getterFn, setterFn, primitive ? to : setter.getGenericParameterTypes()[0],
+                    needsConvert(getter, setter, from, to), primitive));
+        }
+        return new BeanCopier<>(target.constructor, properties.toArray(new Property[0]));
+    }
+
+    private static boolean needsConvert(Method getter, Method setter, Class<?> from, Class<?> to) {
+        if (!to.isAssignableFrom(from)) {
+            return true;
+        }
+        // 原始类型兼容，但目标是带具体类型参数的泛型且与原属性不同，如 List<Item> 到 List<ItemDTO>，元素也要转换
+        Type targetType = setter.getGenericParameterTypes()[0];
+        return targetType instanceof ParameterizedType && isConcrete(targetType)
+                && !targetType.equals(getter.getGenericReturnType());
+    }
+
+    /**
+     * 不含类型变量和通配符的类型，只有这样的类型 hutool 才能确定元素要转换成什么
+     */
+    private static boolean isConcrete(Type type) {
+        if (type instanceof Class) {
+            return true;
+        }
+        if (!(type instanceof ParameterizedType)) {
+            return false;
+        }
+        for (Type arg : ((ParameterizedType) type).getActualTypeArguments()) {
+            if (!isConcrete(arg)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        return type.isPrimitive() ? MethodType.methodType(type).wrap().returnType() : type;
+    }
+
+    private static final class Property {
+        private final Function<Object, Object> getter;
+        private final BiConsumer<Object, Object> setter;
+        private final Type targetType;
+        private final boolean convert;
+        private final boolean primitive;
+
+        private Property(Function<Object, Object> getter, BiConsumer<Object, Object> setter,
+                         Type targetType, boolean convert, boolean primitive) {
+            this.getter = getter;
+            this.setter = setter;
+            this.targetType = targetType;
+            this.convert = convert;
+            this.primitive = primitive;
+        }
+    }
+
+    /**
+     * 一个类型的 getter、setter 和无参构造函数，生成的访问器按方法缓存，供不同的类型对复用
+     */
+    private static final class Accessors {
+        private final Map<String, Method> getters = new HashMap<>();
+        private final Map<String, Method> setters = new HashMap<>();
+        private final Map<Method, Optional<Function<Object, Object>>> getterCache = new ConcurrentHashMap<>();
+        private final Map<Method, Optional<BiConsumer<Object, Object>>> setterCache = new ConcurrentHashMap<>();
+        private final Supplier<Object> constructor;
+
+        private Accessors(Class<?> type) {
+            for (Method m : type.getMethods()) {
+                if (Modifier.isStatic(m.getModifiers()) || m.isBridge() || m.getDeclaringClass() == Object.class) {
+                    continue;
+                }
+                String name = m.getName();
+                if (m.getParameterCount() == 0 && m.getReturnType() != void.class) {
+                    if (name.startsWith("get") && name.length() > 3) {
+                        getters.putIfAbsent(decapitalize(name.substring(3)), m);
+                    } else if (name.startsWith("is") && name.length() > 2
+                            && (m.getReturnType() == boolean.class || m.getReturnType() == Boolean.class)) {
+                        getters.putIfAbsent(decapitalize(name.substring(2)), m);
+                    }
+                } else if (m.getParameterCount() == 1 && name.startsWith("set") && name.length() > 3) {
+                    setters.putIfAbsent(decapitalize(name.substring(3)), m);
+                }
+            }
+            this.constructor = constructor(type);
+        }
+
+        /**
+         * @return getter，无法访问时返回null
+         */
+        private Function<Object, Object> getter(Method m) {
+            return getterCache.computeIfAbsent(m, k -> Optional.ofNullable(createGetter(k))).orElse(null);
+        }
+
+        /**
+         * @return setter，无法访问时返回null
+         */
+        private BiConsumer<Object, Object> setter(Method m) {
+            return setterCache.computeIfAbsent(m, k -> Optional.ofNullable(createSetter(k))).orElse(null);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Function<Object, Object> createGetter(Method m) {
+            try {
+                MethodHandles.Lookup lookup = lookup(m.getDeclaringClass());
+                MethodHandle handle = lookup.unreflect(m);
+                CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                        MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class),
+                        handle, handle.type().wrap());
+                return (Function<Object, Object>) site.getTarget().invoke();
+            } catch (Throwable e) {
+                // 无法生成lambda时（如类不可见），退化为方法句柄调用
+                MethodHandle handle = unreflect(m);
+                if (handle == null) {
+                    return null;
+                }
+                MethodHandle getter = handle.asType(MethodType.methodType(Object.class, Object.class));
+                return source -> {
+                    try {
+                        return getter.invokeExact(source);
+                    } catch (Throwable t) {
+                        throw sneakyThrow(t);
+                    }
+                };
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static BiConsumer<Object, Object> createSetter(Method m) {
+            try {
+                MethodHandles.Lookup lookup = lookup(m.getDeclaringClass());
+                MethodHandle handle = lookup.unreflect(m);
+                // 链式setter的返回值被丢弃
+                CallSite site = LambdaMetafactory.metafactory(lookup, "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        handle, handle.type().wrap().changeReturnType(void.class));
+                return (BiConsumer<Object, Object>) site.getTarget().invoke();
+            } catch (Throwable e) {
+                MethodHandle handle = unreflect(m);
+                if (handle == null) {
+                    return null;
+                }
+                MethodHandle setter = handle.asType(MethodType.methodType(void.class, Object.class, Object.class));
+                return (target, value) -> {
+                    try {
+                        setter.invokeExact(target, value);
+                    } catch (Throwable t) {
+                        throw sneakyThrow(t);
+                    }
+                };
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Supplier<Object> constructor(Class<?> type) {
+            if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+                return null;
+            }
+            Constructor<?> c;
+            try {
+                c = type.getConstructor();
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+            try {
+                MethodHandles.Lookup lookup = lookup(type);
+                MethodHandle handle = lookup.unreflectConstructor(c);
+                CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                        MethodType.methodType(Supplier.class),
+                        MethodType.methodType(Object.class),
+                        handle, handle.type());
+                return (Supplier<Object>) site.getTarget().invoke();
+            } catch (Throwable e) {
+                MethodHandle handle;
+                try {
+                    handle = MethodHandles.publicLookup().unreflectConstructor(c)
+                            .asType(MethodType.methodType(Object.class));
+                } catch (IllegalAccessException ex) {
+                    return null;
+                }
+                return () -> {
+                    try {
+                        return handle.invokeExact();
+                    } catch (Throwable t) {
+                        throw sneakyThrow(t);
+                    }
+                };
+            }
+        }
+
+        private static MethodHandles.Lookup lookup(Class<?> type) throws IllegalAccessException {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        }
+
+        /**
+         * @return 方法句柄，非公开的类或方法返回null
+         */
+        private static MethodHandle unreflect(Method m) {
+            try {
+                return MethodHandles.publicLookup().unreflect(m);
+            } catch (IllegalAccessException e) {
+                return null;
+            }
+        }
+
+        private static String decapitalize(String name) {
+            // 与 java.beans.Introspector 一致：URL -> URL，Name -> name
+            if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0))) {
+                return name;
+            }
+            return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> RuntimeException sneakyThrow(Throwable t) throws E {
+        throw (E) t;
+    }
+}
@@ -2,11 +2,14 @@ package com.hmall.common.utils;
 
 import cn.hutool.core.bean.BeanUtil;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
- * 继承自 hutool 的BeanUtil，增加了bean转换时自定义转换器的功能
+ * 继承自 hutool 的BeanUtil，增加了bean转换时自定义转换器的功能。
+ * copyBean 和 copyList 使用 {@link BeanCopier} 生成的访问器拷贝属性，Map 或没有无参构造函数的目标类型仍由 hutool 处理
  */
 public class BeanUtils extends BeanUtil {
 
@@ -36,18 +39,30 @@ public class BeanUtils extends BeanUtil {
      * @param <T>     目标对象类型
      * @return 目标对象
      */
+    @SuppressWarnings("unchecked")
     public static <R, T> T copyBean(R source, Class<T> clazz){
         if (source == null) {
             return null;
         }
-        return toBean(source, clazz);
+        if (source instanceof Map) {
+            return toBean(source, clazz);
+        }
+        BeanCopier<R, T> copier = BeanCopier.of((Class<R>) source.getClass(), clazz);
+        if (copier == null) {
+            return toBean(source, clazz);
+        }
+        return copier.copy(source);
     }
 
     public static <R, T> List<T> copyList(List<R> list, Class<T> clazz) {
         if (list == null || list.size() == 0) {
             return CollUtils.emptyList();
         }
-        return copyToList(list, clazz);
+        List<T> result = new ArrayList<>(list.size());
+        for (R r : list) {
+            result.add(copyBean(r, clazz));
+        }
+        return result;
     }
 
     public static <R, T> List<T> copyList(List<R> list, Class<T> clazz, Convert<R, T> convert) {
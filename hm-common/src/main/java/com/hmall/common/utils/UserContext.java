@@ -1,5 +1,8 @@
 package com.hmall.common.utils;
 
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
 public class UserContext {
     private static final ThreadLocal<Long> tl = new ThreadLocal<>();
 
@@ -25,4 +28,84 @@ public class UserContext {
     public static void removeUser(){
         tl.remove();
     }
+
+    /**
+     * 以指定用户执行任务，执行完后恢复当前线程原来的用户
+     * <p>
+     * 用户只在任务执行期间可见，与 ScopedValue.where(...).run(...) 的语义一致，平台线程和虚拟线程上都可以使用
+     * </p>
+     * @param userId 用户id，可以为null
+     * @param task 任务
+     */
+    public static void runWithUser(Long userId, Runnable task) {
+        Long previous = tl.get();
+        set(userId);
+        try {
+            task.run();
+        } finally {
+            set(previous);
+        }
+    }
+
+    /**
+     * 以指定用户执行任务并返回结果，执行完后恢复当前线程原来的用户
+     * @param userId 用户id，可以为null
+     * @param task 任务
+     * @return 任务的结果
+     */
+    public static <V> V callWithUser(Long userId, Callable<V> task) throws Exception {
+        Long previous = tl.get();
+        set(userId);
+        try {
+            return task.call();
+        } finally {
+            set(previous);
+        }
+    }
+
+    /**
+     * 包装任务，任务在其它线程执行时使用包装时的用户
+     * @param task 任务
+     * @return 包装后的任务
+     */
+    public static Runnable wrap(Runnable task) {
+        Long userId = tl.get();
+        return () -> runWithUser(userId, task);
+    }
+
+    /**
+     * 包装任务，任务在其它线程执行时使用包装时的用户
+     * @param task 任务
+     * @return 包装后的任务
+     */
+    public static <V> Callable<V> wrapCallable(Callable<V> task) {
+        Long userId = tl.get();
+        return () -> callWithUser(userId, task);
+    }
+
+    /**
+     * 包装任务，用于 CompletableFuture.supplyAsync，任务在其它线程执行时使用包装时的用户
+     * @param task 任务
+     * @return 包装后的任务
+     */
+    public static <V> Supplier<V> wrapSupplier(Supplier<V> task) {
+        Long userId = tl.get();
+        return () -> {
+            Long previous = tl.get();
+            set(userId);
+            try {
+                return task.get();
+            } finally {
+                set(previous);
+            }
+        };
+    }
+
+    private static void set(Long userId) {
+        if (userId == null) {
+            tl.remove();
+        } else {
+            tl.set(userId);
+        }
+    }
 }
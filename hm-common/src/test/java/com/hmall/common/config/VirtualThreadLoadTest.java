@@ -0,0 +1,213 @@
+package com.hmall.common.config;
+
+import com.hmall.common.interceptor.UserInfoInterceptor;
+import com.hmall.common.utils.UserContext;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 2000个并发下单请求分别在Tomcat默认线程池和虚拟线程模式下的吞吐对比
+ * <p>
+ * 下单接口模拟 createOrder 中的三次阻塞调用（查询商品、预占库存、写入订单），每次阻塞 {@value #REMOTE_LATENCY_MS} 毫秒，
+ * 阻塞期间平台线程被占住，虚拟线程只是挂起，与同步的Feign调用、JDBC调用一致。
+ * 每个请求携带不同的 user-info 请求头，由 UserInfoInterceptor 写入 UserContext，
+ * 同时校验每次阻塞之后读到的仍是本请求的用户、请求开始时线程上没有残留的用户。
+ * </p>
+ * 这是手动运行的负载测试，不属于构建的门禁：业务耗时用 sleep 模拟，结果受机器负载影响，只断言较宽的下限。
+ * Tomcat默认200个线程，平台线程模式的理论吞吐为 200 / ({@value #BLOCKING_CALLS} × {@value #REMOTE_LATENCY_MS}ms)，
+ * 要求达到其一半；虚拟线程模式下全部请求同时阻塞，要求吞吐至少是平台线程模式的 {@value #MIN_SPEEDUP} 倍，
+ * p99 不超过 {@value #MAX_VIRTUAL_P99_MS}ms。两种模式的结果输出到日志。
+ * 虚拟线程需要JDK 21，低于21时跳过；耗时较长，默认不运行：
+ * <pre>
+ * mvn -pl hm-common test -Dtest=VirtualThreadLoadTest -Dhm.test.load=true
+ * </pre>
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "hm.test.load", matches = "true")
+class VirtualThreadLoadTest {
+
+    private static final int CONCURRENCY = 2000;
+    private static final int WARMUP_REQUESTS = 200;
+    private static final int BLOCKING_CALLS = 3;
+    private static final long REMOTE_LATENCY_MS = 50;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int MIN_SPEEDUP = 3;
+    private static final long MAX_VIRTUAL_P99_MS = 1000;
+
+    private static Method isVirtual;
+
+    @BeforeAll
+    static void requireVirtualThreads() throws NoSuchMethodException {
+        Assumptions.assumeTrue(Runtime.version().feature() >= 21, "虚拟线程需要JDK 21");
+        isVirtual = Thread.class.getMethod("isVirtual");
+    }
+
+    @Test
+    void virtualThreadsServeMoreCheckoutsThanPlatformPool() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        log.info("{}", platform);
+        log.info("{}", virtual);
+        double platformCeiling = TOMCAT_MAX_THREADS * 1000.0 / (BLOCKING_CALLS * REMOTE_LATENCY_MS);
+        assertTrue(platform.throughput() >= platformCeiling / 2,
+                "Tomcat线程池的吞吐低于理论值的一半（" + Math.round(platformCeiling) + " req/s）：" + platform);
+        assertTrue(virtual.throughput() >= platform.throughput() * MIN_SPEEDUP,
+                "虚拟线程模式的吞吐应至少是Tomcat线程池的" + MIN_SPEEDUP + "倍：" + virtual + " / " + platform);
+        assertTrue(virtual.percentileMillis(0.99) <= MAX_VIRTUAL_P99_MS,
+                "虚拟线程模式的p99超过" + MAX_VIRTUAL_P99_MS + "ms：" + virtual);
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        // 2000个连接同时建立，避免连接在accept队列中被丢弃后重试影响耗时
+        factory.addConnectorCustomizers(connector -> connector.setProperty("acceptCount", String.valueOf(CONCURRENCY)));
+        VirtualThreadConfig config = virtualThreads ? new VirtualThreadConfig() : null;
+        if (config != null) {
+            factory.addProtocolHandlerCustomizers(config);
+        }
+        WebServer server = factory.getWebServer(servletContext ->
+                servletContext.addServlet("checkout", new CheckoutServlet()).addMapping("/orders"));
+        server.start();
+        try {
+            URI uri = URI.create("http://localhost:" + server.getPort() + "/orders");
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .build();
+            // 1.预热，建立连接、加载类
+            send(client, uri, WARMUP_REQUESTS, virtualThreads);
+            // 2.正式测量
+            long start = System.nanoTime();
+            List<Long> latencies = send(client, uri, CONCURRENCY, virtualThreads);
+            long elapsed = System.nanoTime() - start;
+            return new Result(virtualThreads ? "virtual" : "platform", elapsed, latencies);
+        } finally {
+            server.stop();
+            if (config != null) {
+                config.destroy();
+            }
+        }
+    }
+
+    /**
+     * 同时发出全部请求，校验每个响应后返回各请求的耗时
+     */
+    private List<Long> send(HttpClient client, URI uri, int count, boolean virtualThreads) {
+        List<CompletableFuture<Long>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long userId = i + 1L;
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .header("user-info", String.valueOf(userId))
+                    .timeout(Duration.ofSeconds(60))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            long start = System.nanoTime();
+            futures.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .thenApply(response -> {
+                        long latency = System.nanoTime() - start;
+                        assertEquals(200, response.statusCode(), response.body());
+                        String[] parts = response.body().split(",");
+                        assertEquals(String.valueOf(userId), parts[0], "阻塞调用之后读到了其它请求的用户");
+                        assertFalse(Boolean.parseBoolean(parts[1]), "请求开始时线程上残留了用户");
+                        assertEquals(virtualThreads, Boolean.parseBoolean(parts[2]), "请求没有在预期的线程上执行");
+                        return latency;
+                    }));
+        }
+        List<Long> latencies = new ArrayList<>(count);
+        for (CompletableFuture<Long> future : futures) {
+            latencies.add(future.join());
+        }
+        return latencies;
+    }
+
+    /**
+     * 模拟下单接口，与服务中一样由 UserInfoInterceptor 设置和清理 UserContext
+     */
+    private static class CheckoutServlet extends HttpServlet {
+
+        private final UserInfoInterceptor interceptor = new UserInfoInterceptor();
+
+        @Override
+        protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException {
+            boolean leaked = UserContext.getUser() != null;
+            try {
+                interceptor.preHandle(req, resp, this);
+                Long userId = UserContext.getUser();
+                for (int i = 0; i < BLOCKING_CALLS; i++) {
+                    Thread.sleep(REMOTE_LATENCY_MS);
+                    if (!Objects.equals(userId, UserContext.getUser())) {
+                        userId = null;
+                    }
+                }
+                resp.getWriter().write(userId + "," + leaked + "," + isVirtual.invoke(Thread.currentThread()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException(e);
+            } catch (Exception e) {
+                throw new ServletException(e);
+            } finally {
+                try {
+                    interceptor.afterCompletion(req, resp, this, null);
+                } catch (Exception e) {
+                    throw new ServletException(e);
+                }
+            }
+        }
+    }
+
+    private static class Result {
+        private final String mode;
+        private final long elapsedNanos;
+        private final List<Long> latencies;
+
+        private Result(String mode, long elapsedNanos, List<Long> latencies) {
+            this.mode = mode;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = new ArrayList<>(latencies);
+            Collections.sort(this.latencies);
+        }
+
+        private double throughput() {
+            return latencies.size() * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        private long percentileMillis(double p) {
+            int index = (int) Math.ceil(p * latencies.size()) - 1;
+            return TimeUnit.NANOSECONDS.toMillis(latencies.get(Math.max(index, 0)));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d个请求，耗时%dms，吞吐%.0f req/s，p50 %dms，p99 %dms",
+                    mode, latencies.size(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), throughput(),
+                    percentileMillis(0.5), percentileMillis(0.99));
+        }
+    }
+}
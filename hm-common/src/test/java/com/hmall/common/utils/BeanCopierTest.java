@@ -0,0 +1,104 @@
+package com.hmall.common.utils;
+
+import cn.hutool.core.bean.BeanUtil;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * BeanCopier 与 hutool 拷贝结果的一致性
+ */
+class BeanCopierTest {
+
+    @Test
+    void convertsElementsWhenGenericArgumentsDiffer() {
+        Order order = new Order().setLines(new ArrayList<>(Collections.singletonList(new Line().setName("a").setNum(2))));
+
+        OrderDTO copied = BeanUtils.copyBean(order, OrderDTO.class);
+        OrderDTO expected = BeanUtil.copyProperties(order, OrderDTO.class);
+
+        // 与 hutool 一致，List<Line> 中的元素转换为 LineDTO，而不是直接引用原来的 Line
+        assertInstanceOf(LineDTO.class, copied.getLines().get(0));
+        assertEquals(expected.getLines().get(0).getClass(), copied.getLines().get(0).getClass());
+        assertEquals("a", copied.getLines().get(0).getName());
+        assertEquals(2, copied.getLines().get(0).getNum());
+    }
+
+    @Test
+    void keepsReferenceWhenGenericArgumentsMatch() {
+        List<String> tags = new ArrayList<>(Collections.singletonList("x"));
+        Tagged source = new Tagged().setTags(tags);
+
+        TaggedDTO copied = BeanUtils.copyBean(source, TaggedDTO.class);
+
+        assertSame(tags, copied.getTags());
+    }
+
+    @Test
+    void copiesPackagePrivateBeans() {
+        HiddenSource source = new HiddenSource();
+        source.setName("a");
+
+        HiddenTarget copied = BeanUtils.copyBean(source, HiddenTarget.class);
+
+        assertNotNull(copied);
+        assertEquals("a", copied.getName());
+    }
+
+    @Data
+    @Accessors(chain = true)
+    public static class Order {
+        private List<Line> lines;
+    }
+
+    @Data
+    public static class OrderDTO {
+        private List<LineDTO> lines;
+    }
+
+    @Data
+    @Accessors(chain = true)
+    public static class Line {
+        private String name;
+        private Integer num;
+    }
+
+    @Data
+    public static class LineDTO {
+        private String name;
+        private Integer num;
+    }
+
+    @Data
+    @Accessors(chain = true)
+    public static class Tagged {
+        private List<String> tags;
+    }
+
+    @Data
+    public static class TaggedDTO {
+        private List<String> tags;
+    }
+
+    @Data
+    @NoArgsConstructor
+    static class HiddenSource {
+        private String name;
+    }
+
+    @Data
+    @NoArgsConstructor
+    static class HiddenTarget {
+        private String name;
+    }
+}
@@ -3,10 +3,25 @@ package com.hmall.gateway.config;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 @Data
 @ConfigurationProperties(prefix = "hm.auth")
 public class AuthProperties {
     private List<String> excludePaths;
+    /**
+     * 只允许服务间调用的路径，网关直接返回404。服务间调用不经过网关，这些接口信任请求中的用户id
+     */
+    private List<String> internalPaths = new ArrayList<>(Arrays.asList(
+            "/carts/users/**",
+            "/carts/batch-delete/**",
+            "/orders/pay-success/**",
+            "/users/money/journals/**"
+    ));
+    /**
+     * 退出登录的路径，由网关直接撤销请求中的token并返回，不转发到下游服务
+     */
+    private String logoutPath = "/users/logout";
 }
\ No newline at end of file
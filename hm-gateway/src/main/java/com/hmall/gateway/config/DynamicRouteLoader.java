@@ -1,22 +1,36 @@
 package com.hmall.gateway.config;
 
+import cn.hutool.core.util.StrUtil;
 import com.alibaba.cloud.nacos.NacosConfigManager;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.TypeReference;
 import com.alibaba.nacos.api.config.ConfigService;
 import com.alibaba.nacos.api.config.listener.Listener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
 import org.springframework.cloud.gateway.route.RouteDefinition;
 import org.springframework.cloud.gateway.route.RouteDefinitionWriter;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import javax.annotation.PostConstruct;
-import java.util.HashSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 动态路由加载器
@@ -30,10 +44,16 @@ public class DynamicRouteLoader {
     // Nacos配置
     private static final String DATA_ID = "gateway-routes.json";
     private static final String GROUP = "DEFAULT_GROUP";
+    private static final Duration WRITE_TIMEOUT = Duration.ofSeconds(10);
     private final NacosConfigManager nacosConfigManager;
     private final RouteDefinitionWriter routeDefinitionWriter;
-    // 保存当前路由的ID，用于删除
-    private final Set<String> routeIds = new HashSet<>();
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    // 当前生效的路由，只在 updateRoutes 中读写
+    private final Map<String, RouteDefinition> routes = new HashMap<>();
+    // 最近一次路由写入的开始时间，路由表替换完成后清零
+    private final AtomicLong swapStart = new AtomicLong();
+    private Timer swapTimer;
 
     /**
      * 初始化路由配置监听器
@@ -43,6 +63,13 @@ public class DynamicRouteLoader {
      */
     @PostConstruct
     public void initRouteConfigListener() throws Exception {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            swapTimer = Timer.builder("hm.gateway.routes.swap")
+                    .description("路由配置变更到新路由表生效的耗时")
+                    .register(registry);
+        }
+
         // 1. 获取ConfigService
         ConfigService configService = nacosConfigManager.getConfigService();
 
@@ -84,36 +111,76 @@ public class DynamicRouteLoader {
 
     /**
      * 更新路由表
-     * 解析配置信息并更新网关的路由定义
+     * 与当前路由对比，只删除、保存有变化的路由，全部写入完成后发布一次 RefreshRoutesEvent。
+     * CachingRouteLocator 在刷新时会先构建出完整的新路由表再整体替换，因此请求始终看到完整的旧表或新表
      *
      * @param configInfo 路由配置信息的JSON字符串
      */
-    private void updateRoutes(String configInfo) {
+    private synchronized void updateRoutes(String configInfo) {
         log.debug("开始更新路由，配置内容：{}", configInfo);
 
         try {
-            // 1. 删除旧路由
-            for (String routeId : routeIds) {
-                routeDefinitionWriter.delete(Mono.just(routeId))
-                        .subscribe(result -> log.debug("删除路由成功: {}", routeId));
+            // 1. 解析配置，解析失败时保留当前路由
+            if (StrUtil.isBlank(configInfo)) {
+                log.warn("路由配置为空，保留当前路由");
+                return;
             }
-            routeIds.clear();
-
-            // 2. 解析配置
             List<RouteDefinition> definitions = JSON.parseObject(configInfo, new TypeReference<List<RouteDefinition>>() {
             });
-
-            // 3. 更新路由
+            Map<String, RouteDefinition> latest = new LinkedHashMap<>();
             for (RouteDefinition definition : definitions) {
-                routeDefinitionWriter.save(Mono.just(definition))
-                        .subscribe(result -> log.debug("保存路由成功: {}", definition.getId()));
-                routeIds.add(definition.getId());
+                latest.put(definition.getId(), definition);
             }
 
-            log.info("路由更新完成，共{}条路由", definitions.size());
+            // 2. 对比新旧路由
+            List<String> deleted = new ArrayList<>();
+            for (String routeId : routes.keySet()) {
+                if (!latest.containsKey(routeId)) {
+                    deleted.add(routeId);
+                }
+            }
+            List<RouteDefinition> saved = new ArrayList<>();
+            for (RouteDefinition definition : latest.values()) {
+                if (!definition.equals(routes.get(definition.getId()))) {
+                    saved.add(definition);
+                }
+            }
+            if (deleted.isEmpty() && saved.isEmpty()) {
+                log.info("路由配置没有变化");
+                return;
+            }
+
+            // 3. 写入变化的路由，等待全部完成
+            long start = System.nanoTime();
+            Flux.fromIterable(deleted)
+                    .concatMap(routeId -> routeDefinitionWriter.delete(Mono.just(routeId))
+                            .onErrorResume(e -> Mono.empty()))
+                    .thenMany(Flux.fromIterable(saved)
+                            .concatMap(definition -> routeDefinitionWriter.save(Mono.just(definition))))
+                    .then()
+                    .block(WRITE_TIMEOUT);
+            routes.clear();
+            routes.putAll(latest);
+
+            // 4. 发布一次刷新事件，由 CachingRouteLocator 整体替换路由表
+            swapStart.set(start);
+            eventPublisher.publishEvent(new RefreshRoutesEvent(this));
+
+            log.info("路由更新完成，共{}条路由，删除{}条，新增或修改{}条", latest.size(), deleted.size(), saved.size());
 
         } catch (Exception e) {
             log.error("更新路由失败", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * 路由表替换完成，记录从开始写入到替换完成的耗时
+     */
+    @EventListener(RefreshRoutesResultEvent.class)
+    public void onRoutesRefreshed(RefreshRoutesResultEvent event) {
+        long start = swapStart.getAndSet(0);
+        if (start > 0 && swapTimer != null) {
+            swapTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
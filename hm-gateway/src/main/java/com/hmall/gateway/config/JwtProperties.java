@@ -4,10 +4,20 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.core.io.Resource;
 
+import java.time.Duration;
+
 @Data
 @ConfigurationProperties(prefix = "hm.jwt")
 public class JwtProperties {
     private Resource location;
     private String password;
     private String alias;
+    /**
+     * 验签结果缓存的最大条数
+     */
+    private long tokenCacheSize = 100000;
+    /**
+     * token中没有exp时，验签结果的缓存时间
+     */
+    private Duration tokenCacheTtl = Duration.ofMinutes(30);
 }
\ No newline at end of file
@@ -2,16 +2,17 @@ package com.hmall.gateway.filter;
 
 import com.hmall.common.exception.UnauthorizedException;
 import com.hmall.gateway.config.AuthProperties;
-import com.hmall.gateway.utils.JwtTool;
+import com.hmall.gateway.utils.ExcludePathMatcher;
+import com.hmall.gateway.utils.VerifiedTokenCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
 import org.springframework.core.Ordered;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.stereotype.Component;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
@@ -21,9 +22,9 @@ import java.util.List;
 @RequiredArgsConstructor
 public class AuthorizeGlobalFilter implements GlobalFilter, Ordered {
 
-    private final JwtTool jwtTool;
+    private final VerifiedTokenCache tokenCache;
+    private final ExcludePathMatcher excludePathMatcher;
     private final AuthProperties authProperties;
-    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
@@ -31,47 +32,52 @@ public class AuthorizeGlobalFilter implements GlobalFilter, Ordered {
         ServerHttpRequest request = exchange.getRequest();
         ServerHttpResponse response = exchange.getResponse();
 
-        // 2. 判断是否是放行路径
-        if (isExclude(request.getPath().toString())) {
+        // 2. 只允许服务间调用的接口不对外暴露
+        if (excludePathMatcher.isInternal(request.getPath().pathWithinApplication())) {
+            response.setStatusCode(HttpStatus.NOT_FOUND);
+            return response.setComplete();
+        }
+
+        // 3. 判断是否是放行路径
+        if (excludePathMatcher.isExclude(request.getPath().pathWithinApplication())) {
             return chain.filter(exchange);
         }
 
-        // 3. 获取 token
+        // 4. 获取 token
         String token = null;
         List<String> headers = request.getHeaders().get("authorization");
         if (headers != null && !headers.isEmpty()) {
             token = headers.get(0);
         }
 
-        // 4. 解析 token
+        // 5. 解析 token，同一token只在第一次请求时验签
         Long userId;
         try {
-            userId = jwtTool.parseToken(token);
+            userId = tokenCache.parseToken(token);
         } catch (UnauthorizedException e) {
             // 如果解析失败，直接拦截
             response.setStatusCode(HttpStatus.UNAUTHORIZED);
             return response.setComplete();
         }
 
-        // 5. 将用户信息放入请求头，传递给下游服务
+        // 6. 退出登录，撤销token后直接返回
+        if (request.getMethod() == HttpMethod.POST
+                && authProperties.getLogoutPath().equals(request.getPath().pathWithinApplication().value())) {
+            tokenCache.revoke(token);
+            response.setStatusCode(HttpStatus.OK);
+            return response.setComplete();
+        }
+
+        // 7. 将用户信息放入请求头，传递给下游服务
         String userInfo = userId.toString();
         ServerWebExchange mutatedExchange = exchange.mutate()
                 .request(builder -> builder.header("user-info", userInfo))
                 .build();
 
-        // 6. 放行
+        // 8. 放行
         return chain.filter(mutatedExchange);
     }
 
-    private boolean isExclude(String path) {
-        for (String pathPattern : authProperties.getExcludePaths()) {
-            if (antPathMatcher.match(pathPattern, path)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     @Override
     public int getOrder() {
         // 过滤器执行顺序，越小优先级越高
@@ -0,0 +1,129 @@
+package com.hmall.gateway.utils;
+
+import com.hmall.gateway.config.AuthProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import org.springframework.web.util.pattern.PatternParseException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 放行路径、内部路径匹配器
+ * <p>
+ * 根据 hm.auth.excludePaths、hm.auth.internalPaths 分别预先编译：不含通配符的路径放入哈希表，其余解析为 {@link PathPattern}，
+ * PathPattern 不支持的写法（如中间出现 **）仍交给 AntPathMatcher。配置刷新后 excludePaths 会被替换为新的列表，
+ * 发现列表变化时重新编译并整体替换，匹配过程不加锁。
+ * 内部路径在匹配前合并连续的 /，避免用 //carts/users/1 这样的写法绕过。
+ * </p>
+ */
+@Slf4j
+@Component
+public class ExcludePathMatcher {
+
+    private final AuthProperties authProperties;
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+    private volatile Compiled excludes = new Compiled(null);
+    private volatile Compiled internals = new Compiled(null);
+
+    public ExcludePathMatcher(AuthProperties authProperties) {
+        this.authProperties = authProperties;
+    }
+
+    /**
+     * 判断请求路径是否放行
+     *
+     * @param path 请求路径
+     * @return 是否放行
+     */
+    public boolean isExclude(PathContainer path) {
+        Compiled c = excludes;
+        List<String> source = authProperties.getExcludePaths();
+        if (c.source != source) {
+            c = recompile(source, true);
+        }
+        return c.matches(path);
+    }
+
+    /**
+     * 判断请求路径是否只允许服务间调用
+     *
+     * @param path 请求路径
+     * @return 是否是内部路径
+     */
+    public boolean isInternal(PathContainer path) {
+        Compiled c = internals;
+        List<String> source = authProperties.getInternalPaths();
+        if (c.source != source) {
+            c = recompile(source, false);
+        }
+        String value = path.value();
+        if (value.contains("//")) {
+            path = PathContainer.parsePath(value.replaceAll("/{2,}", "/"));
+        }
+        return c.matches(path);
+    }
+
+    private synchronized Compiled recompile(List<String> source, boolean exclude) {
+        // 配置已刷新，重新编译
+        Compiled c = exclude ? excludes : internals;
+        if (c.source != source) {
+            c = new Compiled(source);
+            if (exclude) {
+                excludes = c;
+            } else {
+                internals = c;
+            }
+            log.info("{}已重新编译，共{}条", exclude ? "放行路径" : "内部路径", source == null ? 0 : source.size());
+        }
+        return c;
+    }
+
+    private class Compiled {
+        private final List<String> source;
+        private final Set<String> exact = new HashSet<>();
+        private final List<PathPattern> patterns = new ArrayList<>();
+        private final List<String> antPatterns = new ArrayList<>();
+
+        private Compiled(List<String> source) {
+            this.source = source;
+            List<String> paths = source == null ? Collections.emptyList() : source;
+            PathPatternParser parser = new PathPatternParser();
+            for (String path : paths) {
+                if (!antPathMatcher.isPattern(path)) {
+                    exact.add(path);
+                    continue;
+                }
+                try {
+                    patterns.add(parser.parse(path));
+                } catch (PatternParseException e) {
+                    antPatterns.add(path);
+                }
+            }
+        }
+
+        private boolean matches(PathContainer path) {
+            if (exact.contains(path.value())) {
+                return true;
+            }
+            for (PathPattern pattern : patterns) {
+                if (pattern.matches(path)) {
+                    return true;
+                }
+            }
+            for (String pattern : antPatterns) {
+                if (antPathMatcher.match(pattern, path.value())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
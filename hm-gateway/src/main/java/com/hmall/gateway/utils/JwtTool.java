@@ -1,5 +1,6 @@
 package com.hmall.gateway.utils;
 
+import cn.hutool.core.convert.Convert;
 import cn.hutool.core.exceptions.ValidateException;
 import cn.hutool.jwt.JWT;
 import cn.hutool.jwt.JWTValidator;
@@ -19,6 +20,16 @@ public class JwtTool {
     }
 
     public Long parseToken(String token) {
+        return verifyToken(token).getUserId();
+    }
+
+    /**
+     * 校验token的签名和有效期，并解析出用户id和过期时间
+     *
+     * @param token token
+     * @return 验签通过的token
+     */
+    public VerifiedToken verifyToken(String token) {
         if (token == null) {
             throw new UnauthorizedException("未登录");
         }
@@ -40,10 +51,14 @@ public class JwtTool {
         if (userPayload == null) {
             throw new UnauthorizedException("无效的token");
         }
+        Long userId;
         try {
-            return Long.valueOf(userPayload.toString());
+            userId = Long.valueOf(userPayload.toString());
         } catch (RuntimeException e) {
             throw new UnauthorizedException("无效的token");
         }
+        // exp单位为秒
+        Long exp = Convert.toLong(jwt.getPayload(JWT.EXPIRES_AT), null);
+        return new VerifiedToken(userId, exp == null ? null : exp * 1000);
     }
 }
\ No newline at end of file
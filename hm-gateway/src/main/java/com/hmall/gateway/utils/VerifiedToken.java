@@ -0,0 +1,20 @@
+package com.hmall.gateway.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 验签通过的token
+ */
+@Getter
+@AllArgsConstructor
+public class VerifiedToken {
+    /**
+     * 用户id
+     */
+    private final Long userId;
+    /**
+     * 过期时间（毫秒时间戳），token中没有exp时为null
+     */
+    private final Long expiresAt;
+}
@@ -0,0 +1,165 @@
+package com.hmall.gateway.utils;
+
+import cn.hutool.core.codec.Base64;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.hmall.common.exception.UnauthorizedException;
+import com.hmall.gateway.config.JwtProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 验签结果缓存
+ * <p>
+ * 以token的SHA-256摘要为key缓存验签通过的结果，条目在token的exp时刻过期，同一会话的后续请求不再做RSA验签。
+ * 缓存中不保存token原文。被撤销的token记录在撤销集合中，直到它本身过期，最长保留 tokenCacheTtl；撤销集合与验签缓存同样有条数上限。
+ * 撤销记录只保存在本实例内存中，多实例部署的网关需要把退出登录请求广播到各实例。
+ * </p>
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    // 撤销记录中表示token没有exp
+    private static final long NO_EXPIRY = -1L;
+
+    private final JwtTool jwtTool;
+    private final Cache<String, VerifiedToken> verified;
+    // 已撤销token的摘要 -> 过期时间
+    private final Cache<String, Long> revoked;
+    private final Timer verifyTimer;
+
+    public VerifiedTokenCache(JwtTool jwtTool, JwtProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.jwtTool = jwtTool;
+        long defaultTtl = properties.getTokenCacheTtl().toNanos();
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(properties.getTokenCacheSize())
+                .expireAfter(new ExpireAt<VerifiedToken>(defaultTtl, VerifiedToken::getExpiresAt))
+                .recordStats()
+                .build();
+        // 撤销记录与验签结果同样有上限，最多保留 tokenCacheTtl，user-service签发的token有效期不应超过它
+        this.revoked = Caffeine.newBuilder()
+                .maximumSize(properties.getTokenCacheSize())
+                .expireAfter(new ExpireAt<Long>(defaultTtl, v -> v == NO_EXPIRY ? null : v))
+                .build();
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            CaffeineCacheMetrics.monitor(registry, verified, "jwtTokenCache");
+            this.verifyTimer = Timer.builder("hm.gateway.jwt.verify")
+                    .description("token验签耗时，只统计未命中缓存的请求")
+                    .register(registry);
+        } else {
+            this.verifyTimer = null;
+        }
+    }
+
+    /**
+     * 校验token，优先使用缓存的验签结果
+     *
+     * @param token token
+     * @return 用户id
+     */
+    public Long parseToken(String token) {
+        if (token == null) {
+            throw new UnauthorizedException("未登录");
+        }
+        String digest = digest(token);
+        // 1.已撤销
+        if (revoked.getIfPresent(digest) != null) {
+            throw new UnauthorizedException("token已失效");
+        }
+        // 2.命中缓存
+        VerifiedToken cached = verified.getIfPresent(digest);
+        if (cached != null) {
+            return cached.getUserId();
+        }
+        // 3.未命中，验签后放入缓存，验签失败的token不缓存
+        long start = System.nanoTime();
+        VerifiedToken result;
+        try {
+            result = jwtTool.verifyToken(token);
+        } finally {
+            if (verifyTimer != null) {
+                verifyTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+        verified.put(digest, result);
+        return result.getUserId();
+    }
+
+    /**
+     * 撤销token，例如用户退出登录或修改密码后
+     *
+     * @param token token
+     */
+    public void revoke(String token) {
+        String digest = digest(token);
+        VerifiedToken cached = verified.getIfPresent(digest);
+        if (cached == null) {
+            // 未缓存时验签一次，以便知道撤销记录需要保留多久
+            try {
+                cached = jwtTool.verifyToken(token);
+            } catch (UnauthorizedException e) {
+                // 本身就是无效的token，无需撤销
+                return;
+            }
+        }
+        Long expiresAt = cached.getExpiresAt();
+        revoked.put(digest, expiresAt == null ? NO_EXPIRY : expiresAt);
+        verified.invalidate(digest);
+    }
+
+    private static String digest(String token) {
+        byte[] hash = SHA256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.encode(hash);
+    }
+
+    /**
+     * 条目在给定的毫秒时间戳过期，最长不超过默认时长，没有过期时间时使用默认时长
+     */
+    private static class ExpireAt<V> implements Expiry<String, V> {
+        private final long defaultTtl;
+        private final Function<V, Long> expiresAt;
+
+        private ExpireAt(long defaultTtl, Function<V, Long> expiresAt) {
+            this.defaultTtl = defaultTtl;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, V value, long currentTime) {
+            Long at = expiresAt.apply(value);
+            if (at == null) {
+                return defaultTtl;
+            }
+            return Math.min(defaultTtl, TimeUnit.MILLISECONDS.toNanos(Math.max(0, at - System.currentTimeMillis())));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, V value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, V value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
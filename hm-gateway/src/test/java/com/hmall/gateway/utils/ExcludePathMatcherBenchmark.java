@@ -0,0 +1,128 @@
+package com.hmall.gateway.utils;
+
+import com.hmall.gateway.config.AuthProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.server.PathContainer;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 放行路径判断的耗时：预编译的 ExcludePathMatcher 与原来逐条调用 AntPathMatcher.match 对比，放行规则分别为10、100、500条
+ * <p>
+ * 规则中精确路径、以 /** 结尾的前缀、带 * 和 {变量} 的路径各占三分之一。请求路径大部分是需要登录的业务路径（不命中），
+ * 少部分命中第一条或最后一条规则，与网关的实际流量接近。
+ * </p>
+ * 运行方式：
+ * <pre>
+ * mvn -pl hm-gateway -am test-compile
+ * mvn -pl hm-gateway exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     "-Dexec.args=-cp %classpath com.hmall.gateway.utils.ExcludePathMatcherBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExcludePathMatcherBenchmark {
+
+    @Param({"10", "100", "500"})
+    private int patterns;
+
+    private List<String> excludePaths;
+    private ExcludePathMatcher matcher;
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+    private PathContainer[] requests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        excludePaths = new ArrayList<>(patterns);
+        for (int i = 0; i < patterns; i++) {
+            switch (i % 3) {
+                case 0:
+                    excludePaths.add("/public/page" + i);
+                    break;
+                case 1:
+                    excludePaths.add("/static" + i + "/**");
+                    break;
+                default:
+                    excludePaths.add("/open" + i + "/{id}/*.json");
+                    break;
+            }
+        }
+        AuthProperties properties = new AuthProperties();
+        properties.setExcludePaths(excludePaths);
+        matcher = new ExcludePathMatcher(properties);
+        int last = patterns - 1;
+        requests = new PathContainer[]{
+                PathContainer.parsePath("/orders/1654779387523936258"),
+                PathContainer.parsePath("/carts"),
+                PathContainer.parsePath("/users/me"),
+                PathContainer.parsePath("/pay-orders/1654779387523936258"),
+                PathContainer.parsePath("/items/page"),
+                PathContainer.parsePath("/orders"),
+                PathContainer.parsePath("/public/page0"),
+                PathContainer.parsePath(lastPatternPath(last))
+        };
+        // 首次调用时编译，不计入测量
+        matcher.isExclude(requests[0]);
+    }
+
+    @Benchmark
+    public boolean compiled() {
+        return matcher.isExclude(randomRequest());
+    }
+
+    @Benchmark
+    public boolean antLoop() {
+        String path = randomRequest().value();
+        for (String pattern : excludePaths) {
+            if (antPathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private PathContainer randomRequest() {
+        return requests[ThreadLocalRandom.current().nextInt(requests.length)];
+    }
+
+    private static String lastPatternPath(int i) {
+        switch (i % 3) {
+            case 0:
+                return "/public/page" + i;
+            case 1:
+                return "/static" + i + "/css/app.css";
+            default:
+                return "/open" + i + "/42/data.json";
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ExcludePathMatcherBenchmark.class.getName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,9 @@
+package com.hmall.item.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ItemSearchProperties.class)
+public class ItemSearchConfig {
+}
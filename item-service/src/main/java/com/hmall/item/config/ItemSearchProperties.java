@@ -0,0 +1,21 @@
+package com.hmall.item.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "hm.item.search-index")
+public class ItemSearchProperties {
+    /**
+     * 是否启用内存搜索索引，默认关闭，走数据库查询
+     */
+    private boolean enabled = false;
+    /**
+     * 启动时从item表构建索引的分批大小
+     */
+    private int loadBatchSize = 1000;
+    /**
+     * 每个聚合维度最多返回的条目数
+     */
+    private int facetSize = 20;
+}
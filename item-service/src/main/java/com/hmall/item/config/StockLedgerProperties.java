@@ -0,0 +1,27 @@
+package com.hmall.item.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "hm.item.stock-ledger")
+public class StockLedgerProperties {
+    /**
+     * 是否启用内存库存账本，默认关闭，走数据库扣减
+     */
+    private boolean enabled = false;
+    /**
+     * 异步回写数据库的时间窗口
+     */
+    private Duration flushInterval = Duration.ofMillis(200);
+    /**
+     * 启动时从item表重建账本的分批大小
+     */
+    private int loadBatchSize = 1000;
+    /**
+     * 预占记录在内存中的保留时间，也是启动时加载的范围；之后到达的取消按 stock_reservation 表中的记录归还
+     */
+    private Duration reservationTtl = Duration.ofHours(24);
+}
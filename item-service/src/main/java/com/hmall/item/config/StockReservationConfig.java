@@ -0,0 +1,11 @@
+package com.hmall.item.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(StockReservationProperties.class)
+public class StockReservationConfig {
+}
@@ -0,0 +1,15 @@
+package com.hmall.item.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "hm.item.stock-reservation")
+public class StockReservationProperties {
+    /**
+     * 库存预占记录的保留时间，需长于库存账本的 reservationTtl 和交易服务发件箱的最长重试时间，之后到达的取消不再归还库存
+     */
+    private Duration retention = Duration.ofDays(7);
+}
@@ -1,17 +1,21 @@
 package com.hmall.item.controller;
 
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.hmall.api.dto.ItemDTO;
 import com.hmall.api.dto.OrderDetailDTO;
+import com.hmall.api.dto.StockReserveResultDTO;
 import com.hmall.common.domain.PageDTO;
 import com.hmall.common.domain.PageQuery;
 import com.hmall.common.utils.BeanUtils;
 import com.hmall.item.domain.po.Item;
+import com.hmall.item.search.ItemSearchIndex;
 import com.hmall.item.service.IItemService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -23,10 +27,17 @@ import java.util.List;
 public class ItemController {
 
     private final IItemService itemService;
+    private final ObjectProvider<ItemSearchIndex> searchIndex;
 
     @ApiOperation("分页查询商品")
     @GetMapping("/page")
     public PageDTO<ItemDTO> queryItemByPage(PageQuery query) {
+        if (query.isKeyset()) {
+            // 游标分页
+            LambdaQueryWrapper<Item> wrapper = new LambdaQueryWrapper<>();
+            Page<Item> page = query.toMpKeysetPage(wrapper, "update_time", false);
+            return PageDTO.ofKeyset(itemService.page(page, wrapper), query, ItemDTO.class);
+        }
         // 1.分页查询
         Page<Item> result = itemService.page(query.toMpPage("update_time", false));
         // 2.封装并返回
@@ -36,12 +47,6 @@ public class ItemController {
     @ApiOperation("根据id批量查询商品")
     @GetMapping
     public List<ItemDTO> queryItemByIds(@RequestParam("ids") List<Long> ids) {
-        // 模拟服务响应慢，用于测试 Fallback
-        try {
-            Thread.sleep(500);  // 延迟 500ms
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
         return itemService.queryItemByIds(ids);
     }
 
@@ -55,7 +60,10 @@ public class ItemController {
     @PostMapping
     public void saveItem(@RequestBody ItemDTO item) {
         // 新增
-        itemService.save(BeanUtils.copyBean(item, Item.class));
+        Item po = BeanUtils.copyBean(item, Item.class);
+        itemService.save(po);
+        itemService.reloadStock(po.getId());
+        searchIndex.ifAvailable(index -> index.refresh(po.getId()));
     }
 
     @ApiOperation("更新商品状态")
@@ -65,6 +73,8 @@ public class ItemController {
         item.setId(id);
         item.setStatus(status);
         itemService.updateById(item);
+        // 上下架后同步搜索索引
+        searchIndex.ifAvailable(index -> index.refresh(id));
     }
 
     @ApiOperation("更新商品")
@@ -74,12 +84,19 @@ public class ItemController {
         item.setStatus(null);
         // 更新
         itemService.updateById(BeanUtils.copyBean(item, Item.class));
+        if (item.getStock() != null) {
+            // 库存被修改，同步库存账本
+            itemService.reloadStock(item.getId());
+        }
+        searchIndex.ifAvailable(index -> index.refresh(item.getId()));
     }
 
     @ApiOperation("根据id删除商品")
     @DeleteMapping("{id}")
     public void deleteItemById(@PathVariable("id") Long id) {
         itemService.removeById(id);
+        itemService.evictStock(id);
+        searchIndex.ifAvailable(index -> index.remove(id));
     }
 
     @ApiOperation("批量扣减库存")
@@ -87,4 +104,17 @@ public class ItemController {
     public void deductStock(@RequestBody List<OrderDetailDTO> items) {
         itemService.deductStock(items);
     }
+
+    @ApiOperation("以预占id预占订单库存，库存不足时整单拒绝，重复调用只扣减一次")
+    @PutMapping("/stock/reservations/{reservationId}")
+    public StockReserveResultDTO reserveStock(@PathVariable("reservationId") String reservationId,
+                                              @RequestBody List<OrderDetailDTO> items) {
+        return itemService.reserveStock(reservationId, items);
+    }
+
+    @ApiOperation("取消预占并归还库存，可重复调用")
+    @DeleteMapping("/stock/reservations/{reservationId}")
+    public void cancelReservation(@PathVariable("reservationId") String reservationId) {
+        itemService.cancelReservation(reservationId);
+    }
 }
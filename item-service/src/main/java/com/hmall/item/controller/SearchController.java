@@ -1,38 +1,119 @@
 package com.hmall.item.controller;
 
 import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.conditions.query.LambdaQueryChainWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.hmall.api.dto.ItemDTO;
 import com.hmall.common.domain.PageDTO;
+import com.hmall.common.utils.BeanUtils;
+import com.hmall.common.utils.CollUtils;
+import com.hmall.item.config.ItemSearchProperties;
 import com.hmall.item.domain.po.Item;
 import com.hmall.item.domain.query.ItemPageQuery;
+import com.hmall.item.domain.vo.ItemFacetsVO;
+import com.hmall.item.search.ItemSearchIndex;
+import com.hmall.item.search.SearchHits;
 import com.hmall.item.service.IItemService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Api(tags = "搜索相关接口")
 @RestController
 @RequestMapping("/search")
 @RequiredArgsConstructor
 public class SearchController {
     private final IItemService itemService;
+    private final ObjectProvider<ItemSearchIndex> searchIndex;
+    private final ItemSearchProperties searchProperties;
 
     @ApiOperation("搜索商品")
     @GetMapping("/list")
     public PageDTO<ItemDTO> search(ItemPageQuery query) {
-        // 分页查询
-        Page<Item> result = itemService.lambdaQuery()
+        // 1.启用了搜索索引，在内存中查询
+        ItemSearchIndex index = searchIndex.getIfAvailable();
+        if (index != null && index.supports(query)) {
+            return searchByIndex(index, query);
+        }
+        // 2.分页查询
+        LambdaQueryChainWrapper<Item> wrapper = itemService.lambdaQuery()
                 .like(StrUtil.isNotBlank(query.getKey()), Item::getName, query.getKey())
                 .eq(StrUtil.isNotBlank(query.getBrand()), Item::getBrand, query.getBrand())
                 .eq(StrUtil.isNotBlank(query.getCategory()), Item::getCategory, query.getCategory())
                 .eq(Item::getStatus, 1)
-                .between(query.getMaxPrice() != null, Item::getPrice, query.getMinPrice(), query.getMaxPrice())
-                .page(query.toMpPage("update_time", false));
+                .between(query.getMaxPrice() != null, Item::getPrice, query.getMinPrice(), query.getMaxPrice());
+        if (query.isKeyset()) {
+            // 游标分页
+            Page<Item> page = query.toMpKeysetPage(wrapper, "update_time", false);
+            return PageDTO.ofKeyset(wrapper.page(page), query, ItemDTO.class);
+        }
+        Page<Item> result = wrapper.page(query.toMpPage("update_time", false));
         // 封装并返回
         return PageDTO.of(result, ItemDTO.class);
     }
-}
\ No newline at end of file
+
+    @ApiOperation("搜索结果的品牌、分类聚合")
+    @GetMapping("/facets")
+    public ItemFacetsVO facets(ItemPageQuery query) {
+        ItemSearchIndex index = searchIndex.getIfAvailable();
+        if (index != null && index.supports(query)) {
+            return index.facets(query);
+        }
+        // 未启用索引，分别按品牌、分类分组统计
+        ItemFacetsVO vo = new ItemFacetsVO();
+        vo.setBrands(countBy("brand", query, false, true));
+        vo.setCategories(countBy("category", query, true, false));
+        return vo;
+    }
+
+    private PageDTO<ItemDTO> searchByIndex(ItemSearchIndex index, ItemPageQuery query) {
+        // 1.索引中查出当前页的id
+        SearchHits hits = index.search(query);
+        long pages = (hits.getTotal() + query.getPageSize() - 1) / query.getPageSize();
+        if (CollUtils.isEmpty(hits.getIds())) {
+            return PageDTO.empty(hits.getTotal(), pages);
+        }
+        // 2.按id回表查询最新的商品数据，并保持索引中的顺序
+        Map<Long, Item> itemMap = itemService.listByIds(hits.getIds()).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+        List<Item> items = new ArrayList<>(hits.getIds().size());
+        for (Long id : hits.getIds()) {
+            Item item = itemMap.get(id);
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        return new PageDTO<>(hits.getTotal(), pages, BeanUtils.copyList(items, ItemDTO.class));
+    }
+
+    private Map<String, Integer> countBy(String column, ItemPageQuery query, boolean withBrand, boolean withCategory) {
+        QueryWrapper<Item> wrapper = new QueryWrapper<Item>()
+                .select(column + " AS name", "COUNT(*) AS total")
+                .like(StrUtil.isNotBlank(query.getKey()), "name", query.getKey())
+                .eq(withBrand && StrUtil.isNotBlank(query.getBrand()), "brand", query.getBrand())
+                .eq(withCategory && StrUtil.isNotBlank(query.getCategory()), "category", query.getCategory())
+                .eq("status", 1)
+                .isNotNull(column)
+                .between(query.getMaxPrice() != null, "price", query.getMinPrice(), query.getMaxPrice())
+                .groupBy(column)
+                .orderByDesc("total")
+                .last("LIMIT " + searchProperties.getFacetSize());
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Map<String, Object> row : itemService.listMaps(wrapper)) {
+            result.put(String.valueOf(row.get("name")), ((Number) row.get("total")).intValue());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,51 @@
+package com.hmall.item.domain.po;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * <p>
+ * 库存预占记录，保证同一个预占只扣减、归还一次
+ * </p>
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Accessors(chain = true)
+@TableName("stock_reservation")
+public class StockReservation implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 预占id，由调用方生成，例如 order:{订单id}
+     */
+    @TableId(value = "reservation_id", type = IdType.INPUT)
+    private String reservationId;
+
+    /**
+     * 状态，1：已预占，2：已取消
+     */
+    private Integer status;
+
+    /**
+     * 预占的明细，JSON格式，取消时按此归还
+     */
+    private String items;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
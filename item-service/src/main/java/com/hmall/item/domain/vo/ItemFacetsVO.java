@@ -0,0 +1,16 @@
+package com.hmall.item.domain.vo;
+
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+@ApiModel(description = "商品搜索聚合结果")
+public class ItemFacetsVO {
+    @ApiModelProperty("品牌及对应的商品数量，按数量倒序")
+    private Map<String, Integer> brands;
+    @ApiModelProperty("分类及对应的商品数量，按数量倒序")
+    private Map<String, Integer> categories;
+}
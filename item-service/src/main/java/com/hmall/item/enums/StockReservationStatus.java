@@ -0,0 +1,24 @@
+package com.hmall.item.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum StockReservationStatus {
+    RESERVED(1, "已预占"),
+    CANCELLED(2, "已取消"),
+    ;
+    private final int value;
+    private final String desc;
+
+    StockReservationStatus(int value, String desc) {
+        this.value = value;
+        this.desc = desc;
+    }
+
+    public boolean equalsValue(Integer value){
+        if (value == null) {
+            return false;
+        }
+        return getValue() == value;
+    }
+}
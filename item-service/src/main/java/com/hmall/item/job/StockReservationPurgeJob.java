@@ -0,0 +1,29 @@
+package com.hmall.item.job;
+
+import com.hmall.item.config.StockReservationProperties;
+import com.hmall.item.mapper.StockReservationMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 定期删除过期的库存预占记录
+ */
+@Component
+@RequiredArgsConstructor
+public class StockReservationPurgeJob {
+
+    private static final int PURGE_LIMIT = 1000;
+
+    private final StockReservationMapper reservationMapper;
+    private final StockReservationProperties properties;
+
+    @Scheduled(cron = "${hm.item.stock-reservation.purge-cron:0 47 * * * ?}")
+    public void purge() {
+        long retentionSeconds = properties.getRetention().getSeconds();
+        int deleted;
+        do {
+            deleted = reservationMapper.purge(retentionSeconds, PURGE_LIMIT);
+        } while (deleted >= PURGE_LIMIT);
+    }
+}
@@ -0,0 +1,474 @@
+package com.hmall.item.ledger;
+
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.toolkit.SqlHelper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hmall.api.dto.OrderDetailDTO;
+import com.hmall.api.dto.StockReserveResultDTO;
+import com.hmall.api.dto.StockShortageDTO;
+import com.hmall.item.config.StockLedgerProperties;
+import com.hmall.item.domain.po.Item;
+import com.hmall.item.domain.po.StockReservation;
+import com.hmall.item.enums.StockReservationStatus;
+import com.hmall.item.mapper.ItemMapper;
+import com.hmall.item.mapper.StockReservationMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 内存库存账本
+ * <p>
+ * 每个商品的可用库存保存在内存计数器中，扣减通过CAS完成，不再竞争item表的行锁；
+ * 扣减量先累计到待回写队列，由后台线程在每个时间窗口内合并为每个商品一条UPDATE。
+ * 启动时从item表重建。注意：账本是库存的权威副本，只适用于单实例（或按商品分片）部署的item-service。
+ * 预占记录与扣减量在同一个事务中回写 stock_reservation 表，启动时重新加载 reservationTtl 以内的记录；
+ * 内存中已没有记录的取消（超过 reservationTtl）按数据库中的记录直接归还item表的库存，不会因重启或过期而丢失归还。
+ * </p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "hm.item.stock-ledger", name = "enabled", havingValue = "true")
+public class StockLedger {
+
+    private static final Log MYBATIS_LOG = LogFactory.getLog(StockLedger.class);
+    private static final String UPDATE_STOCK_STATEMENT = "com.hmall.item.mapper.ItemMapper.updateStock";
+    private static final String UPSERT_RESERVATION_STATEMENT = "com.hmall.item.mapper.StockReservationMapper.upsert";
+
+    private final ItemMapper itemMapper;
+    private final StockReservationMapper reservationMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final StockLedgerProperties properties;
+
+    // 商品id -> 可用库存
+    private final Map<Long, AtomicInteger> available = new ConcurrentHashMap<>();
+    // 商品id -> 尚未回写到数据库的扣减量，负数表示归还
+    private final Map<Long, AtomicInteger> pending = new ConcurrentHashMap<>();
+    // 回写与单品重载互斥，避免重载时读到回写了一半的库存
+    private final Object flushMonitor = new Object();
+    // 预占、归还持有读锁，彼此之间并发执行；重载持有写锁，保证“扣减可用库存”和“记录待回写扣减量”对重载是原子的
+    private final ReadWriteLock reloadLock = new ReentrantReadWriteLock();
+
+    private ScheduledExecutorService flusher;
+    // 预占id -> 预占记录，取消时按记录归还，重复的预占、取消不会重复扣减或归还
+    private Cache<String, Reservation> reservations;
+    // 预占id -> 尚未回写的最新状态，只在 reservations 的 compute 中写入，保证与内存中的状态顺序一致
+    private final Map<String, Reservation> unflushedReservations = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        reservations = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getReservationTtl())
+                .build();
+        // 1.从item表重建账本
+        rebuild();
+        // 2.加载 reservationTtl 以内的预占记录，重启后重复的预占、取消仍然只扣减、归还一次
+        loadReservations();
+        // 3.启动异步回写线程
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "stock-ledger-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = properties.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() throws InterruptedException {
+        // 停止调度后做最后一次回写，保证扣减不丢失
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+    }
+
+    /**
+     * 按id分批扫描item表，重建全部商品的可用库存
+     */
+    private void rebuild() {
+        long lastId = 0L;
+        int batchSize = properties.getLoadBatchSize();
+        int count = 0;
+        while (true) {
+            List<Item> items = itemMapper.selectList(new LambdaQueryWrapper<Item>()
+                    .select(Item::getId, Item::getStock)
+                    .gt(Item::getId, lastId)
+                    .orderByAsc(Item::getId)
+                    .last("LIMIT " + batchSize));
+            for (Item item : items) {
+                available.put(item.getId(), new AtomicInteger(stockOf(item)));
+            }
+            count += items.size();
+            if (items.size() < batchSize) {
+                break;
+            }
+            lastId = items.get(items.size() - 1).getId();
+        }
+        log.info("库存账本重建完成，共{}个商品", count);
+    }
+
+    /**
+     * 按预占id分批加载 reservationTtl 以内的预占记录
+     */
+    private void loadReservations() {
+        String lastId = "";
+        int batchSize = properties.getLoadBatchSize();
+        long ttlSeconds = properties.getReservationTtl().getSeconds();
+        int count = 0;
+        while (true) {
+            List<StockReservation> records = reservationMapper.selectRecent(lastId, ttlSeconds, batchSize);
+            for (StockReservation r : records) {
+                reservations.put(r.getReservationId(), new Reservation(
+                        JSONUtil.toList(r.getItems(), OrderDetailDTO.class),
+                        !StockReservationStatus.RESERVED.equalsValue(r.getStatus())));
+            }
+            count += records.size();
+            if (records.size() < batchSize) {
+                break;
+            }
+            lastId = records.get(records.size() - 1).getReservationId();
+        }
+        log.info("库存预占记录加载完成，共{}条", count);
+    }
+
+    /**
+     * 以预占id预占一个订单的全部商品库存，同一个预占id重复调用只扣减一次
+     *
+     * @param reservationId 预占id
+     * @param items         订单明细，商品id不能重复
+     * @return 预占结果，预占已被取消时返回冲突
+     */
+    public StockReserveResultDTO tryReserve(String reservationId, List<OrderDetailDTO> items) {
+        // 1.重复的预占直接返回第一次的结果
+        Reservation existing = reservations.getIfPresent(reservationId);
+        if (existing != null) {
+            return existing.cancelled ? StockReserveResultDTO.conflict() : StockReserveResultDTO.ok();
+        }
+        StockReserveResultDTO result = tryReserve(items);
+        if (!result.isSuccess()) {
+            return result;
+        }
+        // 2.登记预占，期间到达的同一预占或取消先登记时，以先登记的为准，退回本次扣减
+        Reservation created = new Reservation(items, false);
+        Reservation current = reservations.asMap().compute(reservationId, (id, r) -> {
+            if (r != null) {
+                return r;
+            }
+            unflushedReservations.put(id, created);
+            return created;
+        });
+        if (current != created) {
+            release(items);
+            return current.cancelled ? StockReserveResultDTO.conflict() : StockReserveResultDTO.ok();
+        }
+        return result;
+    }
+
+    /**
+     * 取消预占并归还库存，可重复调用；预占不存在时登记为已取消，之后到达的同一预占会被拒绝
+     *
+     * @param reservationId 预占id
+     */
+    public void cancel(String reservationId) {
+        // 1.内存中有记录，在内存中归还，由回写线程持久化
+        if (cancelInMemory(reservationId, false)) {
+            return;
+        }
+        // 2.内存中没有记录，预占已超过 reservationTtl 或从未到达，按数据库中的记录归还
+        cancelInDatabase(reservationId);
+        // 3.登记为已取消，期间在内存中完成的同一预占也一并取消
+        cancelInMemory(reservationId, true);
+    }
+
+    /**
+     * 在内存中取消预占
+     *
+     * @param register 内存中没有记录时是否登记为已取消
+     * @return 内存中是否有记录
+     */
+    private boolean cancelInMemory(String reservationId, boolean register) {
+        Reservation[] reserved = new Reservation[1];
+        boolean[] found = new boolean[1];
+        reservations.asMap().compute(reservationId, (id, r) -> {
+            if (r == null) {
+                // 数据库中已经是取消状态，只登记在内存中
+                return register ? new Reservation(Collections.emptyList(), true) : null;
+            }
+            found[0] = true;
+            if (r.cancelled) {
+                return r;
+            }
+            reserved[0] = r;
+            Reservation cancelled = new Reservation(r.items, true);
+            unflushedReservations.put(id, cancelled);
+            return cancelled;
+        });
+        if (reserved[0] != null) {
+            release(reserved[0].items);
+        }
+        return found[0];
+    }
+
+    /**
+     * 按数据库中的预占记录取消，直接归还item表的库存，账本同步增加可用库存；记录不存在时登记为已取消
+     */
+    private void cancelInDatabase(String reservationId) {
+        // 持有读锁直到账本更新完成，避免重载读到已归还的库存后又被加一次
+        Lock lock = reloadLock.readLock();
+        lock.lock();
+        try {
+            List<OrderDetailDTO> restored = transactionTemplate.execute(status -> {
+                StockReservation reservation = reservationMapper.selectForUpdate(reservationId);
+                if (reservation == null) {
+                    reservationMapper.insertIgnore(new StockReservation()
+                            .setReservationId(reservationId)
+                            .setStatus(StockReservationStatus.CANCELLED.getValue())
+                            .setItems("[]"));
+                    return Collections.<OrderDetailDTO>emptyList();
+                }
+                if (!StockReservationStatus.RESERVED.equalsValue(reservation.getStatus())) {
+                    return Collections.<OrderDetailDTO>emptyList();
+                }
+                List<OrderDetailDTO> lines = JSONUtil.toList(reservation.getItems(), OrderDetailDTO.class);
+                if (!lines.isEmpty()) {
+                    itemMapper.restoreStockBatch(lines);
+                }
+                reservationMapper.updateStatus(reservationId,
+                        StockReservationStatus.RESERVED.getValue(), StockReservationStatus.CANCELLED.getValue());
+                return lines;
+            });
+            if (restored == null) {
+                return;
+            }
+            // 数据库已经归还，不再产生待回写的归还量
+            for (OrderDetailDTO item : restored) {
+                AtomicInteger counter = available.get(item.getItemId());
+                if (counter != null) {
+                    counter.addAndGet(item.getNum());
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 预占一个订单的全部商品库存，要么全部成功，要么全部不扣
+     *
+     * @param items 订单明细，商品id不能重复
+     * @return 预占结果，失败时包含库存不足的明细和不存在的商品
+     */
+    public StockReserveResultDTO tryReserve(List<OrderDetailDTO> items) {
+        // 1.不在锁内查询数据库，先把账本中没有的商品加载进来
+        AtomicInteger[] counters = new AtomicInteger[items.size()];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = counterOf(items.get(i).getItemId());
+        }
+        Lock lock = reloadLock.readLock();
+        lock.lock();
+        try {
+            // 2.逐个扣减，持有的是计数器引用，商品被并发移出账本也不影响回滚
+            List<AtomicInteger> reserved = new ArrayList<>(items.size());
+            List<Integer> reservedNums = new ArrayList<>(items.size());
+            List<StockShortageDTO> shortages = new ArrayList<>();
+            List<Long> missingItemIds = new ArrayList<>();
+            for (int i = 0; i < counters.length; i++) {
+                OrderDetailDTO item = items.get(i);
+                AtomicInteger counter = counters[i];
+                if (counter == null) {
+                    missingItemIds.add(item.getItemId());
+                } else if (!decrement(counter, item.getNum())) {
+                    shortages.add(new StockShortageDTO(item.getItemId(), item.getNum(), counter.get()));
+                } else {
+                    reserved.add(counter);
+                    reservedNums.add(item.getNum());
+                }
+            }
+            if (!shortages.isEmpty() || !missingItemIds.isEmpty()) {
+                // 有商品库存不足或不存在，归还已经扣减的商品
+                for (int i = 0; i < reserved.size(); i++) {
+                    reserved.get(i).addAndGet(reservedNums.get(i));
+                }
+                return StockReserveResultDTO.rejected(shortages, missingItemIds);
+            }
+            // 3.全部扣减成功，记录待回写的扣减量，重载在此之前不会执行
+            for (OrderDetailDTO item : items) {
+                pending.computeIfAbsent(item.getItemId(), id -> new AtomicInteger()).addAndGet(item.getNum());
+            }
+            return StockReserveResultDTO.ok();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 归还预占的库存，归还量以负数扣减量的形式回写数据库
+     *
+     * @param items 订单明细
+     */
+    private void release(List<OrderDetailDTO> items) {
+        Lock lock = reloadLock.readLock();
+        lock.lock();
+        try {
+            for (OrderDetailDTO item : items) {
+                AtomicInteger counter = available.get(item.getItemId());
+                if (counter != null) {
+                    counter.addAndGet(item.getNum());
+                }
+                pending.computeIfAbsent(item.getItemId(), id -> new AtomicInteger()).addAndGet(-item.getNum());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 商品被修改后，以数据库库存减去尚未回写的扣减量作为新的可用库存
+     *
+     * @param itemId 商品id
+     */
+    public void reload(Long itemId) {
+        synchronized (flushMonitor) {
+            Lock lock = reloadLock.writeLock();
+            lock.lock();
+            try {
+                Item item = itemMapper.selectById(itemId);
+                if (item == null) {
+                    available.remove(itemId);
+                    return;
+                }
+                AtomicInteger delta = pending.get(itemId);
+                int stock = stockOf(item) - (delta == null ? 0 : delta.get());
+                available.computeIfAbsent(itemId, id -> new AtomicInteger()).set(stock);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 商品被删除后移出账本
+     *
+     * @param itemId 商品id
+     */
+    public void remove(Long itemId) {
+        available.remove(itemId);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("库存账本回写失败", e);
+        }
+    }
+
+    /**
+     * 将时间窗口内累计的扣减量合并回写，每个商品一条UPDATE，与变化的预占记录在同一个事务中提交
+     */
+    public void flush() {
+        synchronized (flushMonitor) {
+            // 1.取出每个商品累计的扣减量
+            List<OrderDetailDTO> deltas = new ArrayList<>();
+            for (Map.Entry<Long, AtomicInteger> e : pending.entrySet()) {
+                int num = e.getValue().getAndSet(0);
+                if (num != 0) {
+                    deltas.add(new OrderDetailDTO().setItemId(e.getKey()).setNum(num));
+                }
+            }
+            // 2.取出状态有变化的预占，成功后只移除回写期间没有再变化的
+            Map<String, Reservation> changed = new HashMap<>(unflushedReservations);
+            if (deltas.isEmpty() && changed.isEmpty()) {
+                return;
+            }
+            List<StockReservation> records = new ArrayList<>(changed.size());
+            changed.forEach((id, r) -> records.add(new StockReservation()
+                    .setReservationId(id)
+                    .setStatus(r.cancelled ? StockReservationStatus.CANCELLED.getValue() : StockReservationStatus.RESERVED.getValue())
+                    .setItems(JSONUtil.toJsonStr(r.items))));
+            // 3.批量回写
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (!deltas.isEmpty()) {
+                        SqlHelper.executeBatch(Item.class, MYBATIS_LOG, deltas, deltas.size(),
+                                (sqlSession, entity) -> sqlSession.update(UPDATE_STOCK_STATEMENT, entity));
+                    }
+                    if (!records.isEmpty()) {
+                        SqlHelper.executeBatch(StockReservation.class, MYBATIS_LOG, records, records.size(),
+                                (sqlSession, entity) -> sqlSession.insert(UPSERT_RESERVATION_STATEMENT, entity));
+                    }
+                });
+            } catch (RuntimeException e) {
+                // 回写失败，扣减量放回队列，预占记录留在待回写列表中，下个窗口重试
+                for (OrderDetailDTO d : deltas) {
+                    pending.computeIfAbsent(d.getItemId(), id -> new AtomicInteger()).addAndGet(d.getNum());
+                }
+                throw e;
+            }
+            changed.forEach(unflushedReservations::remove);
+            log.debug("库存账本回写完成，共{}个商品，{}条预占记录", deltas.size(), records.size());
+        }
+    }
+
+    private AtomicInteger counterOf(Long itemId) {
+        AtomicInteger counter = available.get(itemId);
+        if (counter != null) {
+            return counter;
+        }
+        // 启动后新增的商品，懒加载到账本，查询数据库不放在computeIfAbsent中，避免阻塞同一个桶的其它商品
+        Item item = itemMapper.selectById(itemId);
+        if (item == null) {
+            return null;
+        }
+        return available.computeIfAbsent(itemId, id -> new AtomicInteger(stockOf(item)));
+    }
+
+    private static boolean decrement(AtomicInteger counter, int num) {
+        while (true) {
+            int current = counter.get();
+            if (current < num) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current - num)) {
+                return true;
+            }
+        }
+    }
+
+    private static int stockOf(Item item) {
+        return item.getStock() == null ? 0 : item.getStock();
+    }
+
+    private static final class Reservation {
+        private final List<OrderDetailDTO> items;
+        private final boolean cancelled;
+
+        private Reservation(List<OrderDetailDTO> items, boolean cancelled) {
+            this.items = items;
+            this.cancelled = cancelled;
+        }
+    }
+}
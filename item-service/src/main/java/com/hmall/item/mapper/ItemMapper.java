@@ -3,8 +3,11 @@ package com.hmall.item.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.hmall.api.dto.OrderDetailDTO;
 import com.hmall.item.domain.po.Item;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Update;
 
+import java.util.Collection;
+
 /**
  * <p>
  * 商品表 Mapper 接口
@@ -15,6 +18,38 @@ import org.apache.ibatis.annotations.Update;
  */
 public interface ItemMapper extends BaseMapper<Item> {
 
+    /**
+     * 无下限校验的库存增减，num为负数时表示归还。仅供库存账本回写使用，下限已在内存中保证
+     */
     @Update("UPDATE item SET stock = stock - #{num} WHERE id = #{itemId}")
     void updateStock(OrderDetailDTO orderDetail);
+
+    /**
+     * 一条语句扣减多个商品的库存，只扣减库存充足的商品
+     *
+     * @param items 订单明细，商品id不能重复
+     * @return 扣减成功的商品数，小于明细数量时说明有商品库存不足
+     */
+    @Update("<script>" +
+            "UPDATE item i JOIN (" +
+            "<foreach collection='items' item='d' separator=' UNION ALL '>" +
+            "SELECT #{d.itemId} AS id, #{d.num} AS num" +
+            "</foreach>" +
+            ") t ON i.id = t.id SET i.stock = i.stock - t.num WHERE i.stock &gt;= t.num" +
+            "</script>")
+    int deductStockIfEnough(@Param("items") Collection<OrderDetailDTO> items);
+
+    /**
+     * 一条语句归还多个商品的库存，只能用于取消已登记的预占
+     *
+     * @param items 预占的明细，商品id不能重复
+     */
+    @Update("<script>" +
+            "UPDATE item i JOIN (" +
+            "<foreach collection='items' item='d' separator=' UNION ALL '>" +
+            "SELECT #{d.itemId} AS id, #{d.num} AS num" +
+            "</foreach>" +
+            ") t ON i.id = t.id SET i.stock = i.stock + t.num" +
+            "</script>")
+    int restoreStockBatch(@Param("items") Collection<OrderDetailDTO> items);
 }
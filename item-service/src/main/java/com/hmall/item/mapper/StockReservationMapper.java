@@ -0,0 +1,54 @@
+package com.hmall.item.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.hmall.item.domain.po.StockReservation;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+/**
+ * <p>
+ * 库存预占记录 Mapper 接口
+ * </p>
+ */
+public interface StockReservationMapper extends BaseMapper<StockReservation> {
+
+    /**
+     * 登记预占，预占id已存在时不插入
+     *
+     * @return 插入的条数，0表示已登记过
+     */
+    @Insert("INSERT IGNORE INTO stock_reservation (reservation_id, status, items) VALUES (#{reservationId}, #{status}, #{items})")
+    int insertIgnore(StockReservation reservation);
+
+    @Select("SELECT reservation_id, status, items FROM stock_reservation WHERE reservation_id = #{reservationId} FOR UPDATE")
+    StockReservation selectForUpdate(@Param("reservationId") String reservationId);
+
+    @Update("UPDATE stock_reservation SET status = #{to} WHERE reservation_id = #{reservationId} AND status = #{from}")
+    int updateStatus(@Param("reservationId") String reservationId, @Param("from") int from, @Param("to") int to);
+
+    /**
+     * 写入库存账本中的预占记录，已存在时只更新状态
+     */
+    @Insert("INSERT INTO stock_reservation (reservation_id, status, items) VALUES (#{reservationId}, #{status}, #{items}) " +
+            "ON DUPLICATE KEY UPDATE status = #{status}")
+    int upsert(StockReservation reservation);
+
+    /**
+     * 按预占id分批查询保留时间内创建的记录，以数据库时间为准
+     */
+    @Select("SELECT reservation_id, status, items FROM stock_reservation " +
+            "WHERE reservation_id > #{lastId} AND create_time >= NOW() - INTERVAL #{seconds} SECOND " +
+            "ORDER BY reservation_id LIMIT #{limit}")
+    List<StockReservation> selectRecent(@Param("lastId") String lastId, @Param("seconds") long seconds, @Param("limit") int limit);
+
+    /**
+     * 删除超过保留时间的记录，以数据库时间为准
+     */
+    @Delete("DELETE FROM stock_reservation WHERE create_time < NOW() - INTERVAL #{retentionSeconds} SECOND LIMIT #{limit}")
+    int purge(@Param("retentionSeconds") long retentionSeconds, @Param("limit") int limit);
+}
@@ -0,0 +1,71 @@
+package com.hmall.item.search;
+
+import java.util.Arrays;
+
+/**
+ * 倒排表，保存升序的文档序号。文档序号只增不减，所以追加即可保持有序
+ */
+final class IntList {
+
+    int[] data;
+    int size;
+
+    IntList() {
+        this(4);
+    }
+
+    IntList(int capacity) {
+        data = new int[capacity];
+    }
+
+    void add(int value) {
+        if (size == data.length) {
+            data = Arrays.copyOf(data, size << 1);
+        }
+        data[size++] = value;
+    }
+
+    /**
+     * 求两个倒排表的交集
+     */
+    static IntList intersect(IntList a, IntList b) {
+        IntList result = new IntList(Math.max(1, Math.min(a.size, b.size)));
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            int x = a.data[i];
+            int y = b.data[j];
+            if (x == y) {
+                result.add(x);
+                i++;
+                j++;
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 合并多个倒排表，结果升序去重
+     */
+    static IntList union(Iterable<IntList> lists) {
+        IntList all = new IntList();
+        for (IntList list : lists) {
+            for (int k = 0; k < list.size; k++) {
+                all.add(list.data[k]);
+            }
+        }
+        Arrays.sort(all.data, 0, all.size);
+        int n = 0;
+        for (int k = 0; k < all.size; k++) {
+            if (n == 0 || all.data[n - 1] != all.data[k]) {
+                all.data[n++] = all.data[k];
+            }
+        }
+        all.size = n;
+        return all;
+    }
+}
@@ -0,0 +1,447 @@
+package com.hmall.item.search;
+
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.hmall.item.config.ItemSearchProperties;
+import com.hmall.item.domain.po.Item;
+import com.hmall.item.domain.query.ItemPageQuery;
+import com.hmall.item.domain.vo.ItemFacetsVO;
+import com.hmall.item.mapper.ItemMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 商品内存搜索索引
+ * <p>
+ * 只索引上架（status=1）的商品。商品名称经 {@link ItemTokenizer} 分词后建立倒排表，品牌和分类各建一份倒排表，
+ * 关键字、品牌、分类、价格区间的查询和聚合统计都在内存中完成，最后用 name 包含关键字做一次校验，
+ * 因此结果与数据库的 LIKE '%key%' 一致。应用启动完成后构建，构建完成前以及不支持的排序字段由调用方回退到数据库查询。
+ * 索引由 ItemController 在商品新增、修改、上下架、删除后按id增量同步，每个item-service实例各自维护一份。
+ * </p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "hm.item.search-index", name = "enabled", havingValue = "true")
+public class ItemSearchIndex {
+
+    private static final String DEFAULT_SORT_BY = "update_time";
+    private static final Map<String, Comparator<Doc>> SORTS = new HashMap<>();
+
+    static {
+        SORTS.put("update_time", Comparator.comparingLong(d -> d.updateTime));
+        SORTS.put("price", Comparator.comparingInt(d -> d.price));
+        SORTS.put("sold", Comparator.comparingInt(d -> d.sold));
+    }
+
+    private final ItemMapper itemMapper;
+    private final ItemSearchProperties properties;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private IndexData data = new IndexData();
+    private volatile boolean ready;
+    // 重建期间被修改的商品，重建完成后重新同步
+    private final Set<Long> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private volatile boolean rebuilding;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * 按id分批扫描item表，重建整个索引后一次性替换
+     */
+    public void rebuild() {
+        rebuilding = true;
+        changedDuringRebuild.clear();
+        try {
+            // 1.分批加载上架商品
+            IndexData fresh = new IndexData();
+            long lastId = 0L;
+            int batchSize = properties.getLoadBatchSize();
+            while (true) {
+                List<Item> items = itemMapper.selectList(new LambdaQueryWrapper<Item>()
+                        .select(Item::getId, Item::getName, Item::getPrice, Item::getBrand, Item::getCategory,
+                                Item::getStatus, Item::getSold, Item::getUpdateTime)
+                        .gt(Item::getId, lastId)
+                        .orderByAsc(Item::getId)
+                        .last("LIMIT " + batchSize));
+                for (Item item : items) {
+                    if (isOnSale(item)) {
+                        fresh.add(new Doc(item));
+                    }
+                }
+                if (items.size() < batchSize) {
+                    break;
+                }
+                lastId = items.get(items.size() - 1).getId();
+            }
+            // 2.替换索引
+            lock.writeLock().lock();
+            try {
+                data = fresh;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            ready = true;
+            log.info("商品搜索索引构建完成，共{}个商品", fresh.ordinals.size());
+        } finally {
+            rebuilding = false;
+        }
+        // 3.重新同步构建期间被修改的商品
+        for (Long id : changedDuringRebuild) {
+            refresh(id);
+        }
+        changedDuringRebuild.clear();
+    }
+
+    /**
+     * 商品新增或修改后，从数据库读取最新数据并更新索引
+     *
+     * @param id 商品id
+     */
+    public void refresh(Long id) {
+        if (rebuilding) {
+            changedDuringRebuild.add(id);
+        }
+        Item item = itemMapper.selectById(id);
+        Doc doc = item != null && isOnSale(item) ? new Doc(item) : null;
+        lock.writeLock().lock();
+        try {
+            data.remove(id);
+            if (doc != null) {
+                data.add(doc);
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 商品删除后移出索引
+     *
+     * @param id 商品id
+     */
+    public void remove(Long id) {
+        if (rebuilding) {
+            changedDuringRebuild.add(id);
+        }
+        lock.writeLock().lock();
+        try {
+            data.remove(id);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 判断索引能否处理该查询
+     *
+     * @param query 查询条件
+     * @return 索引未构建完成、游标分页、排序字段不支持或关键字中有LIKE通配符时返回false，由调用方回退到数据库
+     */
+    public boolean supports(ItemPageQuery query) {
+        // 游标分页依赖数据库中的排序字段值，走数据库查询
+        if (!ready || query.isKeyset()) {
+            return false;
+        }
+        if (StrUtil.isNotBlank(query.getSortBy()) && !SORTS.containsKey(query.getSortBy())) {
+            return false;
+        }
+        return !StrUtil.containsAny(query.getKey(), '%', '_');
+    }
+
+    /**
+     * 分页搜索商品
+     *
+     * @param query 查询条件
+     * @return 命中总数和当前页的商品id
+     */
+    public SearchHits search(ItemPageQuery query) {
+        // 1.排序规则，与数据库查询一致，默认按更新时间倒序，相同时按id
+        boolean defaultSort = StrUtil.isBlank(query.getSortBy());
+        String sortBy = defaultSort ? DEFAULT_SORT_BY : query.getSortBy();
+        boolean asc = !defaultSort && !Boolean.FALSE.equals(query.getIsAsc());
+        Comparator<Doc> order = SORTS.get(sortBy).thenComparingLong(d -> d.id);
+        if (!asc) {
+            order = order.reversed();
+        }
+        int from = query.from();
+        int limit = from + query.getPageSize();
+        // 2.堆顶是已保留的结果中排在最后的，只保留前limit个
+        PriorityQueue<Doc> top = new PriorityQueue<>(order.reversed());
+        long total = 0;
+        Matcher matcher = new Matcher(query);
+        lock.readLock().lock();
+        try {
+            IntList candidates = matcher.candidates(data, true);
+            int n = candidates == null ? data.docs.size() : candidates.size;
+            for (int i = 0; i < n; i++) {
+                Doc doc = data.docs.get(candidates == null ? i : candidates.data[i]);
+                if (doc == null || !matcher.matches(doc) || !matcher.brandMatches(doc) || !matcher.categoryMatches(doc)) {
+                    continue;
+                }
+                total++;
+                if (top.size() < limit) {
+                    top.add(doc);
+                } else if (order.compare(doc, top.peek()) < 0) {
+                    top.poll();
+                    top.add(doc);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // 3.截取当前页
+        List<Doc> sorted = new ArrayList<>(top);
+        sorted.sort(order);
+        List<Long> ids = new ArrayList<>(query.getPageSize());
+        for (int i = from; i < sorted.size(); i++) {
+            ids.add(sorted.get(i).id);
+        }
+        return new SearchHits(total, ids);
+    }
+
+    /**
+     * 统计符合条件的商品在各品牌、分类下的数量。统计品牌时忽略品牌条件，统计分类时忽略分类条件，便于前端切换筛选项
+     *
+     * @param query 查询条件，分页和排序参数会被忽略
+     * @return 聚合结果
+     */
+    public ItemFacetsVO facets(ItemPageQuery query) {
+        Map<String, Integer> brands = new HashMap<>();
+        Map<String, Integer> categories = new HashMap<>();
+        Matcher matcher = new Matcher(query);
+        lock.readLock().lock();
+        try {
+            IntList candidates = matcher.candidates(data, false);
+            int n = candidates == null ? data.docs.size() : candidates.size;
+            for (int i = 0; i < n; i++) {
+                Doc doc = data.docs.get(candidates == null ? i : candidates.data[i]);
+                if (doc == null || !matcher.matches(doc)) {
+                    continue;
+                }
+                boolean brandOk = matcher.brandMatches(doc);
+                boolean categoryOk = matcher.categoryMatches(doc);
+                if (categoryOk && doc.brand != null) {
+                    brands.merge(doc.brand, 1, Integer::sum);
+                }
+                if (brandOk && doc.category != null) {
+                    categories.merge(doc.category, 1, Integer::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        ItemFacetsVO vo = new ItemFacetsVO();
+        vo.setBrands(topN(brands, properties.getFacetSize()));
+        vo.setCategories(topN(categories, properties.getFacetSize()));
+        return vo;
+    }
+
+    private void compactIfNeeded() {
+        // 删除的文档超过一半时，重新编号，回收倒排表中的无效序号
+        if (data.dead > 1024 && data.dead > data.ordinals.size()) {
+            data = data.compact();
+        }
+    }
+
+    private static boolean isOnSale(Item item) {
+        return Integer.valueOf(1).equals(item.getStatus());
+    }
+
+    private static Map<String, Integer> topN(Map<String, Integer> counts, int n) {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> e : entries.subList(0, Math.min(n, entries.size()))) {
+            result.put(e.getKey(), e.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * 一次查询的匹配条件
+     */
+    private static class Matcher {
+        private final String key;
+        private final ItemTokenizer.Tokens tokens;
+        private final String brand;
+        private final String category;
+        private final Integer minPrice;
+        private final Integer maxPrice;
+
+        private Matcher(ItemPageQuery query) {
+            this.key = StrUtil.isBlank(query.getKey()) ? null : query.getKey().toLowerCase();
+            this.tokens = ItemTokenizer.tokenize(key);
+            this.brand = StrUtil.isBlank(query.getBrand()) ? null : query.getBrand();
+            this.category = StrUtil.isBlank(query.getCategory()) ? null : query.getCategory();
+            this.minPrice = query.getMaxPrice() == null ? null : query.getMinPrice();
+            this.maxPrice = query.getMaxPrice();
+        }
+
+        /**
+         * 求倒排表的交集作为候选集
+         *
+         * @param withFilters 是否使用品牌、分类的倒排表缩小候选集
+         * @return 候选文档序号，null表示没有可用的倒排表，需要遍历全部文档
+         */
+        private IntList candidates(IndexData d, boolean withFilters) {
+            List<IntList> lists = new ArrayList<>();
+            // 1.汉字二元组必须全部命中。单个汉字可能出现在更长的词中间，只靠最后的包含校验
+            for (String t : tokens.hanBigrams) {
+                lists.add(d.terms.get(t));
+            }
+            // 2.字母数字词可能是更长的词的一部分，合并所有包含它的词的倒排表
+            for (String w : tokens.words) {
+                List<IntList> matched = new ArrayList<>();
+                for (Map.Entry<String, IntList> e : d.words.entrySet()) {
+                    if (e.getKey().contains(w)) {
+                        matched.add(e.getValue());
+                    }
+                }
+                lists.add(matched.isEmpty() ? null : IntList.union(matched));
+            }
+            if (withFilters && brand != null) {
+                lists.add(d.brands.get(brand));
+            }
+            if (withFilters && category != null) {
+                lists.add(d.categories.get(category));
+            }
+            if (lists.isEmpty()) {
+                return null;
+            }
+            if (lists.contains(null)) {
+                return new IntList(1);
+            }
+            // 3.从最短的倒排表开始求交集
+            lists.sort(Comparator.comparingInt(l -> l.size));
+            IntList result = lists.get(0);
+            for (int i = 1; i < lists.size() && result.size > 0; i++) {
+                result = IntList.intersect(result, lists.get(i));
+            }
+            return result;
+        }
+
+        private boolean matches(Doc doc) {
+            if (key != null && !doc.name.contains(key)) {
+                return false;
+            }
+            if (maxPrice != null && (doc.price > maxPrice || (minPrice != null && doc.price < minPrice))) {
+                return false;
+            }
+            return true;
+        }
+
+        private boolean brandMatches(Doc doc) {
+            return brand == null || brand.equals(doc.brand);
+        }
+
+        private boolean categoryMatches(Doc doc) {
+            return category == null || category.equals(doc.category);
+        }
+    }
+
+    /**
+     * 索引中的商品，只保留查询和排序需要的字段
+     */
+    private static class Doc {
+        private final long id;
+        private final String name;
+        private final String brand;
+        private final String category;
+        private final int price;
+        private final int sold;
+        private final long updateTime;
+
+        private Doc(Item item) {
+            this.id = item.getId();
+            this.name = item.getName() == null ? "" : item.getName().toLowerCase();
+            this.brand = item.getBrand();
+            this.category = item.getCategory();
+            this.price = item.getPrice() == null ? 0 : item.getPrice();
+            this.sold = item.getSold() == null ? 0 : item.getSold();
+            this.updateTime = item.getUpdateTime() == null ? 0L
+                    : item.getUpdateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+    }
+
+    /**
+     * 索引数据，文档序号即 docs 的下标。修改商品时旧序号置空、追加新序号，保证倒排表始终升序
+     */
+    private static class IndexData {
+        private final List<Doc> docs = new ArrayList<>();
+        private final Map<Long, Integer> ordinals = new HashMap<>();
+        // 汉字词元 -> 文档序号
+        private final Map<String, IntList> terms = new HashMap<>();
+        // 字母数字词 -> 文档序号
+        private final Map<String, IntList> words = new HashMap<>();
+        private final Map<String, IntList> brands = new HashMap<>();
+        private final Map<String, IntList> categories = new HashMap<>();
+        private int dead;
+
+        private void add(Doc doc) {
+            int ordinal = docs.size();
+            docs.add(doc);
+            ordinals.put(doc.id, ordinal);
+            ItemTokenizer.Tokens tokens = ItemTokenizer.tokenize(doc.name);
+            for (String t : tokens.hanBigrams) {
+                post(terms, t, ordinal);
+            }
+            for (String t : tokens.hanUnigrams) {
+                post(terms, t, ordinal);
+            }
+            for (String w : tokens.words) {
+                post(words, w, ordinal);
+            }
+            if (doc.brand != null) {
+                post(brands, doc.brand, ordinal);
+            }
+            if (doc.category != null) {
+                post(categories, doc.category, ordinal);
+            }
+        }
+
+        private void remove(Long id) {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal != null) {
+                docs.set(ordinal, null);
+                dead++;
+            }
+        }
+
+        private IndexData compact() {
+            IndexData compacted = new IndexData();
+            for (Doc doc : docs) {
+                if (doc != null) {
+                    compacted.add(doc);
+                }
+            }
+            return compacted;
+        }
+
+        private static void post(Map<String, IntList> postings, String token, int ordinal) {
+            postings.computeIfAbsent(token, t -> new IntList()).add(ordinal);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.hmall.item.search;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 商品名称分词器
+ * <p>
+ * 连续的汉字切分为二元组（“小米手机” -> 小米、米手、手机），只有一个汉字时保留单字；
+ * 连续的字母数字作为一个词并转为小写；其余字符视为分隔符。
+ * </p>
+ */
+public final class ItemTokenizer {
+
+    private ItemTokenizer() {
+    }
+
+    /**
+     * 对文本分词
+     *
+     * @param text 文本
+     * @return 汉字词元和字母数字词，保持出现顺序并去重
+     */
+    public static Tokens tokenize(String text) {
+        Tokens tokens = new Tokens();
+        if (text == null) {
+            return tokens;
+        }
+        String s = text.toLowerCase();
+        int i = 0;
+        int len = s.length();
+        while (i < len) {
+            int start = i;
+            if (isHan(s.charAt(i))) {
+                while (i < len && isHan(s.charAt(i))) {
+                    i++;
+                }
+                if (i - start == 1) {
+                    tokens.hanUnigrams.add(s.substring(start, i));
+                } else {
+                    for (int j = start; j < i - 1; j++) {
+                        tokens.hanBigrams.add(s.substring(j, j + 2));
+                    }
+                }
+            } else if (Character.isLetterOrDigit(s.charAt(i))) {
+                while (i < len && !isHan(s.charAt(i)) && Character.isLetterOrDigit(s.charAt(i))) {
+                    i++;
+                }
+                tokens.words.add(s.substring(start, i));
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isHan(char c) {
+        return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+    }
+
+    public static class Tokens {
+        // 两个及以上连续汉字切出的二元组
+        final Set<String> hanBigrams = new LinkedHashSet<>();
+        // 单独出现的汉字
+        final Set<String> hanUnigrams = new LinkedHashSet<>();
+        // 字母数字词
+        final Set<String> words = new LinkedHashSet<>();
+
+        public boolean isEmpty() {
+            return hanBigrams.isEmpty() && hanUnigrams.isEmpty() && words.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.hmall.item.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 索引查询结果，只包含当前页的商品id，商品详情由调用方按id回表查询
+ */
+@Data
+@AllArgsConstructor
+public class SearchHits {
+    /**
+     * 命中的商品总数
+     */
+    private long total;
+    /**
+     * 当前页的商品id，已按排序规则排好
+     */
+    private List<Long> ids;
+}
@@ -3,6 +3,7 @@ package com.hmall.item.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.hmall.api.dto.ItemDTO;
 import com.hmall.api.dto.OrderDetailDTO;
+import com.hmall.api.dto.StockReserveResultDTO;
 import com.hmall.item.domain.po.Item;
 
 import java.util.Collection;
@@ -20,5 +21,36 @@ public interface IItemService extends IService<Item> {
 
     void deductStock(List<OrderDetailDTO> items);
 
+    /**
+     * 以预占id预占一个订单的全部商品库存，要么全部扣减，要么全部不扣并返回库存不足的明细；
+     * 同一个预占id重复调用只扣减一次，已取消的预占不再扣减
+     *
+     * @param reservationId 预占id，由调用方生成
+     * @param items         订单明细
+     * @return 预占结果
+     */
+    StockReserveResultDTO reserveStock(String reservationId, List<OrderDetailDTO> items);
+
+    /**
+     * 取消预占并按登记的明细归还库存，可重复调用
+     *
+     * @param reservationId 预占id
+     */
+    void cancelReservation(String reservationId);
+
     List<ItemDTO> queryItemByIds(Collection<Long> ids);
+
+    /**
+     * 商品新增或修改后，同步内存库存账本（未启用账本时什么都不做）
+     *
+     * @param id 商品id
+     */
+    void reloadStock(Long id);
+
+    /**
+     * 商品删除后，将其移出内存库存账本（未启用账本时什么都不做）
+     *
+     * @param id 商品id
+     */
+    void evictStock(Long id);
 }
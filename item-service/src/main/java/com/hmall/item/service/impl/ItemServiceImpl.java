@@ -1,17 +1,35 @@
 package com.hmall.item.service.impl;
 
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.hmall.api.dto.ItemDTO;
 import com.hmall.api.dto.OrderDetailDTO;
+import com.hmall.api.dto.StockReserveResultDTO;
+import com.hmall.api.dto.StockShortageDTO;
+import com.hmall.common.exception.BadRequestException;
 import com.hmall.common.exception.BizIllegalException;
 import com.hmall.common.utils.BeanUtils;
+import com.hmall.common.utils.CollUtils;
 import com.hmall.item.domain.po.Item;
+import com.hmall.item.domain.po.StockReservation;
+import com.hmall.item.enums.StockReservationStatus;
+import com.hmall.item.ledger.StockLedger;
 import com.hmall.item.mapper.ItemMapper;
+import com.hmall.item.mapper.StockReservationMapper;
 import com.hmall.item.service.IItemService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * <p>
@@ -21,24 +39,186 @@ import java.util.List;
  * @author 虎哥
  */
 @Service
+@RequiredArgsConstructor
 public class ItemServiceImpl extends ServiceImpl<ItemMapper, Item> implements IItemService {
 
+    // 预占失败但找不到缺口（库存在两次查询之间发生了变化）时的最多尝试次数
+    private static final int MAX_RESERVE_ATTEMPTS = 3;
+
+    private final ObjectProvider<StockLedger> stockLedger;
+    private final StockReservationMapper reservationMapper;
+    private final TransactionTemplate transactionTemplate;
+
     @Override
     public void deductStock(List<OrderDetailDTO> items) {
-        String sqlStatement = "com.hmall.item.mapper.ItemMapper.updateStock";
-        boolean r = false;
-        try {
-            r = executeBatch(items, (sqlSession, entity) -> sqlSession.update(sqlStatement, entity));
-        } catch (Exception e) {
-            throw new BizIllegalException("更新库存异常，可能是库存不足!", e);
-        }
-        if (!r) {
+        StockReserveResultDTO result = reserve(null, items);
+        if (!result.isSuccess()) {
             throw new BizIllegalException("库存不足！");
         }
     }
 
+    @Override
+    public StockReserveResultDTO reserveStock(String reservationId, List<OrderDetailDTO> items) {
+        if (StrUtil.isBlank(reservationId)) {
+            throw new BadRequestException("预占id不能为空");
+        }
+        return reserve(reservationId, items);
+    }
+
+    private StockReserveResultDTO reserve(String reservationId, List<OrderDetailDTO> items) {
+        // 1.合并相同商品的明细
+        List<OrderDetailDTO> lines = mergeLines(items);
+        if (lines.isEmpty()) {
+            return StockReserveResultDTO.ok();
+        }
+        // 2.启用了库存账本，直接在内存中预占，由账本异步回写数据库
+        StockLedger ledger = stockLedger.getIfAvailable();
+        if (ledger != null) {
+            return reservationId == null ? ledger.tryReserve(lines) : ledger.tryReserve(reservationId, lines);
+        }
+        for (int attempt = 0; attempt < MAX_RESERVE_ATTEMPTS; attempt++) {
+            // 3.未启用，登记预占，并用一条带下限校验的UPDATE扣减全部商品，有任何商品不足则整体回滚
+            StockReserveResultDTO result = transactionTemplate.execute(status -> {
+                if (reservationId != null) {
+                    StockReserveResultDTO existing = register(reservationId, lines);
+                    if (existing != null) {
+                        return existing;
+                    }
+                }
+                if (baseMapper.deductStockIfEnough(lines) == lines.size()) {
+                    return StockReserveResultDTO.ok();
+                }
+                status.setRollbackOnly();
+                return null;
+            });
+            if (result != null) {
+                return result;
+            }
+            // 4.预占失败，查询当前库存，计算每条明细的缺口
+            StockReserveResultDTO rejected = findShortages(lines);
+            if (rejected != null) {
+                return rejected;
+            }
+            // 5.扣减失败后库存又发生了变化，已经找不到缺口，重试
+        }
+        // 6.重试耗尽，预占登记随事务回滚，没有扣减任何库存，由调用方稍后重试
+        return StockReserveResultDTO.busy();
+    }
+
+    /**
+     * 登记预占
+     *
+     * @return 第一次登记返回null；已登记过时返回第一次的结果，已取消时返回冲突
+     */
+    private StockReserveResultDTO register(String reservationId, List<OrderDetailDTO> lines) {
+        StockReservation reservation = new StockReservation()
+                .setReservationId(reservationId)
+                .setStatus(StockReservationStatus.RESERVED.getValue())
+                .setItems(JSONUtil.toJsonStr(lines));
+        if (reservationMapper.insertIgnore(reservation) > 0) {
+            return null;
+        }
+        StockReservation existing = reservationMapper.selectById(reservationId);
+        return existing != null && StockReservationStatus.RESERVED.equalsValue(existing.getStatus())
+                ? StockReserveResultDTO.ok() : StockReserveResultDTO.conflict();
+    }
+
+    @Override
+    public void cancelReservation(String reservationId) {
+        if (StrUtil.isBlank(reservationId)) {
+            throw new BadRequestException("预占id不能为空");
+        }
+        StockLedger ledger = stockLedger.getIfAvailable();
+        if (ledger != null) {
+            ledger.cancel(reservationId);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            // 1.锁定预占记录
+            StockReservation reservation = reservationMapper.selectForUpdate(reservationId);
+            if (reservation == null) {
+                // 2.取消先于预占到达（例如预占请求超时但仍在途中），登记为已取消，之后到达的预占会被拒绝
+                reservationMapper.insertIgnore(new StockReservation()
+                        .setReservationId(reservationId)
+                        .setStatus(StockReservationStatus.CANCELLED.getValue())
+                        .setItems("[]"));
+                return;
+            }
+            if (!StockReservationStatus.RESERVED.equalsValue(reservation.getStatus())) {
+                // 3.已经取消过
+                return;
+            }
+            // 4.按登记的明细归还，并标记为已取消
+            List<OrderDetailDTO> lines = JSONUtil.toList(reservation.getItems(), OrderDetailDTO.class);
+            if (!lines.isEmpty()) {
+                baseMapper.restoreStockBatch(lines);
+            }
+            reservationMapper.updateStatus(reservationId,
+                    StockReservationStatus.RESERVED.getValue(), StockReservationStatus.CANCELLED.getValue());
+        });
+    }
+
+    /**
+     * 查询当前库存，计算每条明细的缺口
+     *
+     * @return 预占失败的结果，库存已经足够、找不到缺口时返回null
+     */
+    private StockReserveResultDTO findShortages(List<OrderDetailDTO> lines) {
+        Map<Long, Item> itemMap = listByIds(lines.stream().map(OrderDetailDTO::getItemId).collect(Collectors.toList()))
+                .stream().collect(Collectors.toMap(Item::getId, Function.identity()));
+        List<StockShortageDTO> shortages = new ArrayList<>();
+        List<Long> missingItemIds = new ArrayList<>();
+        for (OrderDetailDTO line : lines) {
+            Item item = itemMap.get(line.getItemId());
+            if (item == null) {
+                missingItemIds.add(line.getItemId());
+                continue;
+            }
+            int available = item.getStock() == null ? 0 : item.getStock();
+            if (available < line.getNum()) {
+                shortages.add(new StockShortageDTO(line.getItemId(), line.getNum(), available));
+            }
+        }
+        if (shortages.isEmpty() && missingItemIds.isEmpty()) {
+            return null;
+        }
+        return StockReserveResultDTO.rejected(shortages, missingItemIds);
+    }
+
+    private static List<OrderDetailDTO> mergeLines(List<OrderDetailDTO> items) {
+        if (CollUtils.isEmpty(items)) {
+            return CollUtils.emptyList();
+        }
+        Map<Long, Integer> numMap = new LinkedHashMap<>(items.size());
+        for (OrderDetailDTO item : items) {
+            if (item.getItemId() == null || item.getNum() == null || item.getNum() <= 0) {
+                throw new BadRequestException("商品id不能为空，购买数量必须大于0");
+            }
+            numMap.merge(item.getItemId(), item.getNum(), Integer::sum);
+        }
+        List<OrderDetailDTO> lines = new ArrayList<>(numMap.size());
+        numMap.forEach((itemId, num) -> lines.add(new OrderDetailDTO().setItemId(itemId).setNum(num)));
+        return lines;
+    }
+
     @Override
     public List<ItemDTO> queryItemByIds(Collection<Long> ids) {
         return BeanUtils.copyList(listByIds(ids), ItemDTO.class);
     }
+
+    @Override
+    public void reloadStock(Long id) {
+        StockLedger ledger = stockLedger.getIfAvailable();
+        if (ledger != null) {
+            ledger.reload(id);
+        }
+    }
+
+    @Override
+    public void evictStock(Long id) {
+        StockLedger ledger = stockLedger.getIfAvailable();
+        if (ledger != null) {
+            ledger.remove(id);
+        }
+    }
 }
@@ -0,0 +1,12 @@
+-- 库存预占记录，数据库扣减时与扣减在同一个本地事务中写入，库存账本与扣减量在同一个回写事务中写入；取消时按记录归还并改为已取消，重复的预占、取消都不会重复扣减或归还。超过保留时间的记录由 StockReservationPurgeJob 删除
+CREATE TABLE IF NOT EXISTS stock_reservation
+(
+    reservation_id VARCHAR(64)   NOT NULL COMMENT '预占id，由调用方生成',
+    status         TINYINT       NOT NULL COMMENT '状态，1：已预占，2：已取消',
+    items          VARCHAR(4096) NOT NULL COMMENT '预占的明细，JSON格式',
+    create_time    DATETIME      NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time    DATETIME      NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (reservation_id),
+    KEY idx_create_time (create_time)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4 COMMENT '库存预占记录';
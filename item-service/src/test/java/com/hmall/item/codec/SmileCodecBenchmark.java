@@ -0,0 +1,118 @@
+package com.hmall.item.codec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hmall.api.dto.ItemDTO;
+import com.hmall.common.config.JsonConfig;
+import com.hmall.common.config.SmileConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1000个商品的 queryItemByIds 响应，JSON 与 Smile 的编解码耗时对比
+ * <p>
+ * JSON 使用与服务相同的配置（JsonConfig 把 Long 转成字符串），Smile 使用 SmileConfig 中的转换器。
+ * 两种格式的响应体大小在准备阶段输出到日志。
+ * </p>
+ * 运行方式：
+ * <pre>
+ * mvn -pl item-service -am test-compile
+ * mvn -pl item-service exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     "-Dexec.args=-cp %classpath com.hmall.item.codec.SmileCodecBenchmark"
+ * </pre>
+ */
+@Slf4j
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SmileCodecBenchmark {
+
+    private static final int ITEMS = 1000;
+    private static final TypeReference<List<ItemDTO>> ITEM_LIST = new TypeReference<List<ItemDTO>>() {
+    };
+
+    private ObjectMapper json;
+    private ObjectMapper smile;
+    private List<ItemDTO> items;
+    private byte[] jsonBody;
+    private byte[] smileBody;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        new JsonConfig().jackson2ObjectMapperBuilderCustomizer().customize(builder);
+        json = builder.build();
+        smile = new SmileConfig().smileHttpMessageConverter().getObjectMapper();
+
+        items = new ArrayList<>(ITEMS);
+        for (int i = 0; i < ITEMS; i++) {
+            ItemDTO item = new ItemDTO();
+            item.setId(317578L + i);
+            item.setName("RIMOWA 21寸托运箱拉杆箱 SALSA AIR系列果绿色 820.70.36.4 " + i);
+            item.setPrice(29900 + i);
+            item.setStock(10000);
+            item.setImage("https://m.360buyimg.com/mobilecms/s720x720_jfs/t6934/364/1195375010/84676/e9f2c55f/597ece38N0ddcbc77.jpg!q70.jpg.webp");
+            item.setCategory("拉杆箱");
+            item.setBrand("RIMOWA");
+            item.setSpec("{\"颜色\": \"红色\", \"尺码\": \"26寸\"}");
+            item.setSold(i);
+            item.setCommentCount(i * 3);
+            item.setIsAD(false);
+            item.setStatus(1);
+            items.add(item);
+        }
+        jsonBody = json.writeValueAsBytes(items);
+        smileBody = smile.writeValueAsBytes(items);
+        log.info("{}个商品的响应体大小：JSON {} 字节，Smile {} 字节", ITEMS, jsonBody.length, smileBody.length);
+    }
+
+    @Benchmark
+    public byte[] jsonWrite() throws IOException {
+        return json.writeValueAsBytes(items);
+    }
+
+    @Benchmark
+    public byte[] smileWrite() throws IOException {
+        return smile.writeValueAsBytes(items);
+    }
+
+    @Benchmark
+    public List<ItemDTO> jsonRead() throws IOException {
+        return json.readValue(jsonBody, ITEM_LIST);
+    }
+
+    @Benchmark
+    public List<ItemDTO> smileRead() throws IOException {
+        return smile.readValue(smileBody, ITEM_LIST);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(SmileCodecBenchmark.class.getName())
+                .build();
+        new Runner(options).run();
+    }
+}
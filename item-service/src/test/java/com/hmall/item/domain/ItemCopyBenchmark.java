@@ -0,0 +1,94 @@
+package com.hmall.item.domain;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.hmall.api.dto.ItemDTO;
+import com.hmall.common.utils.BeanUtils;
+import com.hmall.item.domain.po.Item;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Item -> ItemDTO 的属性拷贝耗时：BeanUtils（生成的访问器）与原来的 hutool 反射拷贝对比
+ * <p>
+ * rows=1 对应单个商品的 copyBean，rows=1000 对应 PageDTO.of 一页最多1000行的 copyList。
+ * </p>
+ * 运行方式：
+ * <pre>
+ * mvn -pl item-service -am test-compile
+ * mvn -pl item-service exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     "-Dexec.args=-cp %classpath com.hmall.item.domain.ItemCopyBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemCopyBenchmark {
+
+    @Param({"1", "1000"})
+    private int rows;
+
+    private Item item;
+    private List<Item> items;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        items = new ArrayList<>(rows);
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < rows; i++) {
+            items.add(new Item().setId((long) i).setName("商品" + i).setPrice(19900).setStock(100)
+                    .setImage("https://img.hmall.com/" + i + ".jpg").setCategory("手机").setBrand("华为")
+                    .setSpec("{\"颜色\":\"黑色\"}").setSold(10).setCommentCount(5).setIsAD(false).setStatus(1)
+                    .setCreateTime(now).setUpdateTime(now).setCreater(1L).setUpdater(1L));
+        }
+        item = items.get(0);
+    }
+
+    @Benchmark
+    public ItemDTO copierBean() {
+        return BeanUtils.copyBean(item, ItemDTO.class);
+    }
+
+    @Benchmark
+    public ItemDTO hutoolBean() {
+        return BeanUtil.toBean(item, ItemDTO.class);
+    }
+
+    @Benchmark
+    public List<ItemDTO> copierList() {
+        return BeanUtils.copyList(items, ItemDTO.class);
+    }
+
+    @Benchmark
+    public List<ItemDTO> hutoolList() {
+        return BeanUtil.copyToList(items, ItemDTO.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ItemCopyBenchmark.class.getName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,162 @@
+package com.hmall.item.ledger;
+
+import com.hmall.api.dto.OrderDetailDTO;
+import com.hmall.item.config.StockLedgerProperties;
+import com.hmall.item.domain.po.Item;
+import com.hmall.item.mapper.ItemMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 库存账本与原 executeBatch 扣减路径在热点商品上的吞吐对比，分别以1、8、64个线程争抢4个商品
+ * <p>
+ * executeBatch 路径与原来的 deductStock 一致：每个订单在一个事务中批量执行 UPDATE item SET stock = stock - ?，
+ * 默认使用 Testcontainers 启动 MySQL 8.0，也可以用 -Dhm.bench.jdbc-url/-Dhm.bench.username/-Dhm.bench.password 指定已有的库。
+ * 账本路径只测量请求线程上的预占，回写在后台每个时间窗口每个商品一条UPDATE，不在请求路径上。
+ * </p>
+ * 运行方式：
+ * <pre>
+ * mvn -pl item-service -am test-compile
+ * mvn -pl item-service exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     "-Dexec.args=-cp %classpath com.hmall.item.ledger.StockLedgerBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class StockLedgerBenchmark {
+
+    private static final int HOT_ITEMS = 4;
+    // 足够大，测试期间不会出现库存不足
+    private static final int INITIAL_STOCK = Integer.MAX_VALUE / 2;
+    private static final String DEDUCT_SQL = "UPDATE bench_item SET stock = stock - ? WHERE id = ?";
+
+    @State(Scope.Benchmark)
+    public static class LedgerState {
+        StockLedger ledger;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            // 只实现账本懒加载商品用到的 selectById，不启动回写线程，不登记预占记录
+            ItemMapper mapper = (ItemMapper) Proxy.newProxyInstance(ItemMapper.class.getClassLoader(),
+                    new Class[]{ItemMapper.class}, (proxy, method, args) -> {
+                        if ("selectById".equals(method.getName())) {
+                            return new Item().setId((Long) args[0]).setStock(INITIAL_STOCK);
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    });
+            ledger = new StockLedger(mapper, null, null, new StockLedgerProperties());
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class DatabaseState {
+        MySQLContainer<?> mysql;
+        HikariDataSource dataSource;
+
+        @Setup(Level.Trial)
+        public void setUp() throws SQLException {
+            String url = System.getProperty("hm.bench.jdbc-url");
+            String username = System.getProperty("hm.bench.username", "root");
+            String password = System.getProperty("hm.bench.password", "123");
+            if (url == null) {
+                mysql = new MySQLContainer<>("mysql:8.0.23");
+                mysql.start();
+                url = mysql.getJdbcUrl();
+                username = mysql.getUsername();
+                password = mysql.getPassword();
+            }
+            dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl(url);
+            dataSource.setUsername(username);
+            dataSource.setPassword(password);
+            dataSource.setMaximumPoolSize(64);
+            try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement()) {
+                st.execute("DROP TABLE IF EXISTS bench_item");
+                st.execute("CREATE TABLE bench_item (id BIGINT PRIMARY KEY, stock INT NOT NULL) ENGINE = InnoDB");
+                for (int i = 1; i <= HOT_ITEMS; i++) {
+                    st.execute("INSERT INTO bench_item VALUES (" + i + ", " + INITIAL_STOCK + ")");
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            dataSource.close();
+            if (mysql != null) {
+                mysql.stop();
+            }
+        }
+    }
+
+    @Benchmark
+    public Object ledger(LedgerState state) {
+        return state.ledger.tryReserve(randomOrder());
+    }
+
+    @Benchmark
+    public int[] executeBatch(DatabaseState state) throws SQLException {
+        List<OrderDetailDTO> order = randomOrder();
+        try (Connection conn = state.dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(DEDUCT_SQL)) {
+                for (OrderDetailDTO line : order) {
+                    ps.setInt(1, line.getNum());
+                    ps.setLong(2, line.getItemId());
+                    ps.addBatch();
+                }
+                int[] result = ps.executeBatch();
+                conn.commit();
+                return result;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private static List<OrderDetailDTO> randomOrder() {
+        long itemId = ThreadLocalRandom.current().nextInt(HOT_ITEMS) + 1;
+        return Collections.singletonList(new OrderDetailDTO().setItemId(itemId).setNum(1));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        for (int threads : new int[]{1, 8, 64}) {
+            Options options = new OptionsBuilder()
+                    .include(StockLedgerBenchmark.class.getName())
+                    .threads(threads)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.hmall.item.ledger;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import com.hmall.api.dto.OrderDetailDTO;
+import com.hmall.item.config.StockLedgerProperties;
+import com.hmall.item.mapper.ItemMapper;
+import com.hmall.item.mapper.StockReservationMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 库存账本的预占记录在 MySQL 上的行为，重点是超过 reservationTtl 或重启后到达的取消仍然归还库存
+ * <p>
+ * 默认使用 Testcontainers 启动 MySQL 8.0，没有Docker时跳过；也可以用
+ * -Dhm.test.jdbc-url/-Dhm.test.username/-Dhm.test.password 指定已有的库，测试会重建 item 和 stock_reservation 表。
+ * </p>
+ */
+class StockLedgerReservationTest {
+
+    private static final long ITEM_ID = 1L;
+    private static final int STOCK = 10;
+    private static final String RESERVATION_ID = "order:1";
+
+    private static MySQLContainer<?> mysql;
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static ItemMapper itemMapper;
+    private static StockReservationMapper reservationMapper;
+    private static TransactionTemplate transactionTemplate;
+
+    private final List<StockLedger> ledgers = new ArrayList<>();
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        String url = System.getProperty("hm.test.jdbc-url");
+        String username = System.getProperty("hm.test.username", "root");
+        String password = System.getProperty("hm.test.password", "123");
+        if (url == null) {
+            Assumptions.assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "没有可用的Docker");
+            mysql = new MySQLContainer<>("mysql:8.0.23");
+            mysql.start();
+            url = mysql.getJdbcUrl();
+            username = mysql.getUsername();
+            password = mysql.getPassword();
+        }
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        createTables();
+
+        // 只初始化 ItemMapper 和 StockReservationMapper，不启动整个服务
+        MybatisSqlSessionFactoryBean factoryBean = new MybatisSqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setConfiguration(new MybatisConfiguration());
+        SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+        sqlSessionFactory.getConfiguration().addMapper(ItemMapper.class);
+        sqlSessionFactory.getConfiguration().addMapper(StockReservationMapper.class);
+        SqlSessionTemplate sqlSessionTemplate = new SqlSessionTemplate(sqlSessionFactory);
+        itemMapper = sqlSessionTemplate.getMapper(ItemMapper.class);
+        reservationMapper = sqlSessionTemplate.getMapper(StockReservationMapper.class);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+        if (mysql != null) {
+            mysql.stop();
+        }
+    }
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.update("DELETE FROM stock_reservation");
+        jdbcTemplate.update("DELETE FROM item");
+        jdbcTemplate.update("INSERT INTO item (id, name, price, stock, status) VALUES (?, '测试商品', 100, ?, 1)", ITEM_ID, STOCK);
+    }
+
+    @AfterEach
+    void stopLedgers() throws InterruptedException {
+        for (StockLedger ledger : ledgers) {
+            ledger.destroy();
+        }
+        ledgers.clear();
+    }
+
+    @Test
+    void cancelAfterTtlReturnsStock() throws InterruptedException {
+        StockLedger ledger = start(Duration.ofSeconds(1));
+        assertTrue(ledger.tryReserve(RESERVATION_ID, order(3)).isSuccess());
+        ledger.flush();
+        assertEquals(STOCK - 3, dbStock());
+
+        // 内存中的记录过期后取消，按数据库中的记录归还
+        Thread.sleep(1500);
+        ledger.cancel(RESERVATION_ID);
+
+        assertEquals(STOCK, dbStock());
+        assertEquals(2, reservationStatus());
+        // 账本同步归还，可以再预占全部库存
+        assertTrue(ledger.tryReserve(order(STOCK)).isSuccess());
+        ledger.flush();
+        assertEquals(0, dbStock());
+    }
+
+    @Test
+    void cancelAfterRestartReturnsStock() throws InterruptedException {
+        StockLedger before = start(Duration.ofHours(24));
+        assertTrue(before.tryReserve(RESERVATION_ID, order(3)).isSuccess());
+        stop(before);
+
+        StockLedger after = start(Duration.ofHours(24));
+        after.cancel(RESERVATION_ID);
+        after.flush();
+
+        assertEquals(STOCK, dbStock());
+        assertEquals(2, reservationStatus());
+        assertTrue(after.tryReserve(order(STOCK)).isSuccess());
+    }
+
+    @Test
+    void duplicateReserveAfterRestartDeductsOnce() throws InterruptedException {
+        StockLedger before = start(Duration.ofHours(24));
+        assertTrue(before.tryReserve(RESERVATION_ID, order(3)).isSuccess());
+        stop(before);
+
+        StockLedger after = start(Duration.ofHours(24));
+        assertTrue(after.tryReserve(RESERVATION_ID, order(3)).isSuccess());
+        after.flush();
+
+        assertEquals(STOCK - 3, dbStock());
+        assertFalse(after.tryReserve(order(STOCK - 2)).isSuccess());
+    }
+
+    @Test
+    void cancelBeforeFlushIsPersistedAsCancelled() {
+        StockLedger ledger = start(Duration.ofHours(24));
+        assertTrue(ledger.tryReserve(RESERVATION_ID, order(3)).isSuccess());
+        ledger.cancel(RESERVATION_ID);
+        ledger.flush();
+
+        assertEquals(STOCK, dbStock());
+        assertEquals(2, reservationStatus());
+        // 已取消的预占再次到达时被拒绝
+        assertFalse(ledger.tryReserve(RESERVATION_ID, order(3)).isSuccess());
+    }
+
+    private StockLedger start(Duration reservationTtl) {
+        StockLedgerProperties properties = new StockLedgerProperties();
+        properties.setReservationTtl(reservationTtl);
+        // 后台线程不在测试期间回写，由测试直接调用 flush
+        properties.setFlushInterval(Duration.ofHours(1));
+        StockLedger ledger = new StockLedger(itemMapper, reservationMapper, transactionTemplate, properties);
+        ledger.init();
+        ledgers.add(ledger);
+        return ledger;
+    }
+
+    private void stop(StockLedger ledger) throws InterruptedException {
+        ledger.destroy();
+        ledgers.remove(ledger);
+    }
+
+    private static List<OrderDetailDTO> order(int num) {
+        return Collections.singletonList(new OrderDetailDTO().setItemId(ITEM_ID).setNum(num));
+    }
+
+    private static int dbStock() {
+        return jdbcTemplate.queryForObject("SELECT stock FROM item WHERE id = ?", Integer.class, ITEM_ID);
+    }
+
+    private static int reservationStatus() {
+        return jdbcTemplate.queryForObject("SELECT status FROM stock_reservation WHERE reservation_id = ?",
+                Integer.class, RESERVATION_ID);
+    }
+
+    private static void createTables() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS item");
+        jdbcTemplate.execute("CREATE TABLE item (" +
+                "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, " +
+                "name VARCHAR(200) NOT NULL, " +
+                "price INT NOT NULL, " +
+                "stock INT NOT NULL, " +
+                "image VARCHAR(200), " +
+                "category VARCHAR(200), " +
+                "brand VARCHAR(100), " +
+                "spec VARCHAR(200), " +
+                "sold INT DEFAULT 0, " +
+                "comment_count INT DEFAULT 0, " +
+                "isAD TINYINT(1) DEFAULT 0, " +
+                "status INT DEFAULT 2, " +
+                "create_time DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                "update_time DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                "creater BIGINT, " +
+                "updater BIGINT) ENGINE = InnoDB");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS stock_reservation");
+        jdbcTemplate.execute("CREATE TABLE stock_reservation (" +
+                "reservation_id VARCHAR(64) NOT NULL PRIMARY KEY, " +
+                "status TINYINT NOT NULL, " +
+                "items VARCHAR(4096) NOT NULL, " +
+                "create_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+                "update_time DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
+                "KEY idx_create_time (create_time)) ENGINE = InnoDB");
+    }
+}
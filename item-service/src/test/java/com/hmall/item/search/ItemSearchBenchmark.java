@@ -0,0 +1,230 @@
+package com.hmall.item.search;
+
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.annotation.DbType;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import com.hmall.item.config.ItemSearchProperties;
+import com.hmall.item.domain.po.Item;
+import com.hmall.item.domain.query.ItemPageQuery;
+import com.hmall.item.mapper.ItemMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品搜索的延迟对比：内存索引与原来的 LIKE '%key%' 分页查询
+ * <p>
+ * 两条路径使用同一批商品和同一组查询：关键字、关键字+品牌、关键字+分类+价格区间，每页20条，默认按更新时间倒序。
+ * index 与 SearchController 的索引路径一致，在索引中查出一页id后按id回表；indexOnly 只测量索引本身；
+ * like 与数据库路径一致，由分页插件执行 COUNT 和 LIMIT 两条语句。
+ * 默认使用 Testcontainers 启动 MySQL 8.0，也可以用 -Dhm.bench.jdbc-url/-Dhm.bench.username/-Dhm.bench.password 指定已有的库，
+ * 会重建 item 表。
+ * </p>
+ * 运行方式：
+ * <pre>
+ * mvn -pl item-service -am test-compile
+ * mvn -pl item-service exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     "-Dexec.args=-cp %classpath com.hmall.item.search.ItemSearchBenchmark"
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ItemSearchBenchmark {
+
+    private static final String[] BRANDS = {"华为", "小米", "苹果", "三星", "联想", "索尼"};
+    private static final String[] CATEGORIES = {"手机", "电视", "笔记本", "耳机", "平板"};
+    private static final String[] COLORS = {"黑色", "白色", "蓝色", "金色"};
+    private static final String[] KEYS = {"手机", "耳机", "白色", "Pro"};
+
+    @Param({"10000", "100000"})
+    private int items;
+
+    private MySQLContainer<?> mysql;
+    private HikariDataSource dataSource;
+    private ItemMapper itemMapper;
+    private ItemSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        String url = System.getProperty("hm.bench.jdbc-url");
+        String username = System.getProperty("hm.bench.username", "root");
+        String password = System.getProperty("hm.bench.password", "123");
+        if (url == null) {
+            mysql = new MySQLContainer<>("mysql:8.0.23");
+            mysql.start();
+            url = mysql.getJdbcUrl();
+            username = mysql.getUsername();
+            password = mysql.getPassword();
+        }
+        dataSource = new HikariDataSource();
+        // 批量插入测试数据
+        dataSource.setJdbcUrl(url + (url.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true");
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        createItems();
+
+        // 1.只初始化 ItemMapper 和分页插件，不启动整个服务
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
+        interceptor.addInnerInterceptor(new PaginationInnerInterceptor(DbType.MYSQL));
+        configuration.addInterceptor(interceptor);
+        MybatisSqlSessionFactoryBean factoryBean = new MybatisSqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setConfiguration(configuration);
+        SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+        sqlSessionFactory.getConfiguration().addMapper(ItemMapper.class);
+        itemMapper = new SqlSessionTemplate(sqlSessionFactory).getMapper(ItemMapper.class);
+
+        // 2.构建索引
+        index = new ItemSearchIndex(itemMapper, new ItemSearchProperties());
+        index.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.close();
+        if (mysql != null) {
+            mysql.stop();
+        }
+    }
+
+    @Benchmark
+    public List<Item> index() {
+        SearchHits hits = index.search(randomQuery());
+        if (hits.getIds().isEmpty()) {
+            return Collections.emptyList();
+        }
+        return itemMapper.selectBatchIds(hits.getIds());
+    }
+
+    @Benchmark
+    public SearchHits indexOnly() {
+        return index.search(randomQuery());
+    }
+
+    @Benchmark
+    public Page<Item> like() {
+        ItemPageQuery query = randomQuery();
+        LambdaQueryWrapper<Item> wrapper = new LambdaQueryWrapper<Item>()
+                .like(StrUtil.isNotBlank(query.getKey()), Item::getName, query.getKey())
+                .eq(StrUtil.isNotBlank(query.getBrand()), Item::getBrand, query.getBrand())
+                .eq(StrUtil.isNotBlank(query.getCategory()), Item::getCategory, query.getCategory())
+                .eq(Item::getStatus, 1)
+                .between(query.getMaxPrice() != null, Item::getPrice, query.getMinPrice(), query.getMaxPrice());
+        return itemMapper.selectPage(query.toMpPage("update_time", false), wrapper);
+    }
+
+    private static ItemPageQuery randomQuery() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ItemPageQuery query = new ItemPageQuery();
+        query.setKey(KEYS[random.nextInt(KEYS.length)]);
+        switch (random.nextInt(3)) {
+            case 1:
+                query.setBrand(BRANDS[random.nextInt(BRANDS.length)]);
+                break;
+            case 2:
+                query.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+                query.setMinPrice(10000);
+                query.setMaxPrice(500000);
+                break;
+            default:
+                break;
+        }
+        return query;
+    }
+
+    private void createItems() throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS item");
+            st.execute("CREATE TABLE item (" +
+                    "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, " +
+                    "name VARCHAR(200) NOT NULL, " +
+                    "price INT NOT NULL, " +
+                    "stock INT NOT NULL, " +
+                    "image VARCHAR(200), " +
+                    "category VARCHAR(200), " +
+                    "brand VARCHAR(100), " +
+                    "spec VARCHAR(200), " +
+                    "sold INT DEFAULT 0, " +
+                    "comment_count INT DEFAULT 0, " +
+                    "isAD TINYINT(1) DEFAULT 0, " +
+                    "status INT DEFAULT 2, " +
+                    "create_time DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                    "update_time DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+                    "creater BIGINT, " +
+                    "updater BIGINT, " +
+                    "KEY status (status), " +
+                    "KEY updatetime (update_time)) ENGINE = InnoDB");
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now = System.currentTimeMillis();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO item " +
+                     "(name, price, stock, category, brand, spec, sold, status, update_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= items; i++) {
+                String brand = BRANDS[random.nextInt(BRANDS.length)];
+                String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+                String color = COLORS[random.nextInt(COLORS.length)];
+                ps.setString(1, brand + " " + category + (random.nextBoolean() ? " Pro " : " ") + i + " " + color);
+                ps.setInt(2, random.nextInt(1000, 1000000));
+                ps.setInt(3, 100);
+                ps.setString(4, category);
+                ps.setString(5, brand);
+                ps.setString(6, "{\"颜色\":\"" + color + "\"}");
+                ps.setInt(7, random.nextInt(10000));
+                // 约九成商品上架
+                ps.setInt(8, random.nextInt(10) == 0 ? 2 : 1);
+                ps.setTimestamp(9, new Timestamp(now - random.nextInt(86_400_000)));
+                ps.addBatch();
+                if (i % 1000 == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ItemSearchBenchmark.class.getName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,57 @@
+package com.hmall.pay.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hmall.pay.config.PayOrderCacheProperties;
+import com.hmall.pay.domain.po.PayOrder;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * 按业务订单号缓存最近查询的支付单
+ * <p>
+ * 前端等待支付二维码时会反复申请支付单，这些请求直接由缓存回答。本实例上支付单的每次状态变更都要调用
+ * {@link #invalidate(Long)}，其它实例上的变更在 ttl 之后可见。返回的是缓存中的实例，调用方不要修改。
+ * </p>
+ */
+@Component
+public class PayOrderCache {
+
+    private final PayOrderCacheProperties properties;
+    private final Cache<Long, PayOrder> cache;
+
+    public PayOrderCache(PayOrderCacheProperties properties) {
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .build();
+    }
+
+    /**
+     * 查询支付单，未命中时加载，不存在的支付单不缓存
+     *
+     * @param bizOrderNo 业务订单号
+     * @param loader     从数据库加载
+     * @return 支付单，不存在时返回null
+     */
+    public PayOrder get(Long bizOrderNo, Function<Long, PayOrder> loader) {
+        if (!properties.isEnabled()) {
+            return loader.apply(bizOrderNo);
+        }
+        return cache.get(bizOrderNo, loader);
+    }
+
+    public void put(PayOrder payOrder) {
+        if (properties.isEnabled() && payOrder.getBizOrderNo() != null) {
+            cache.put(payOrder.getBizOrderNo(), payOrder);
+        }
+    }
+
+    public void invalidate(Long bizOrderNo) {
+        if (bizOrderNo != null) {
+            cache.invalidate(bizOrderNo);
+        }
+    }
+}
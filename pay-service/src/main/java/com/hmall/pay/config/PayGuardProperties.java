@@ -0,0 +1,27 @@
+package com.hmall.pay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "hm.pay.guard")
+public class PayGuardProperties {
+    /**
+     * 最多记住的已完成支付单数量
+     */
+    private long maximumCompleted = 100000;
+    /**
+     * 已完成支付单的记忆时间，期间的重复提交直接拒绝
+     */
+    private Duration completedTtl = Duration.ofMinutes(10);
+    /**
+     * 支付中的支付单超过该时间没有结果时，按用户服务的扣款流水对账，需长于调用用户服务扣款的超时时间
+     */
+    private Duration payingTimeout = Duration.ofMinutes(5);
+    /**
+     * 每次对账最多处理的支付单数
+     */
+    private int reconcileBatchSize = 100;
+}
@@ -0,0 +1,9 @@
+package com.hmall.pay.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(PayOrderCacheProperties.class)
+public class PayOrderCacheConfig {
+}
@@ -0,0 +1,23 @@
+package com.hmall.pay.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "hm.pay.order-cache")
+public class PayOrderCacheProperties {
+    /**
+     * 是否缓存按业务订单号查询的支付单
+     */
+    private boolean enabled = true;
+    /**
+     * 最多缓存的支付单数量
+     */
+    private long maximumSize = 10000;
+    /**
+     * 缓存时间，多实例部署时其它实例上的状态变更最晚在这之后可见
+     */
+    private Duration ttl = Duration.ofSeconds(30);
+}
@@ -0,0 +1,76 @@
+package com.hmall.pay.engine;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hmall.common.exception.BizIllegalException;
+import com.hmall.pay.config.PayGuardProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 支付单的并发控制
+ * <p>
+ * 1.记录正在支付的支付单id，同一实例上同一支付单的并发提交只放行一个，其余立即拒绝，不排队等待；<br>
+ * 2.记住最近已完成的支付单及其结果，重复提交在内存中直接拒绝，不再访问数据库和用户服务。<br>
+ * 跨实例的并发由数据库中支付单状态的CAS（待支付 -> 支付中）保证。
+ * </p>
+ */
+@Component
+public class PaymentGuard {
+
+    // 正在支付的支付单id
+    private final Set<Long> paying = ConcurrentHashMap.newKeySet();
+    // 支付单id -> 重复提交时的提示
+    private final Cache<Long, String> completed;
+
+    public PaymentGuard(PayGuardProperties properties) {
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumCompleted())
+                .expireAfterWrite(properties.getCompletedTtl())
+                .build();
+    }
+
+    /**
+     * 支付单已完成时直接拒绝
+     *
+     * @param payOrderId 支付单id
+     */
+    public void checkCompleted(Long payOrderId) {
+        String message = completed.getIfPresent(payOrderId);
+        if (message != null) {
+            throw new BizIllegalException(message);
+        }
+    }
+
+    /**
+     * 记录支付单已完成，之后的重复提交直接拒绝
+     *
+     * @param payOrderId 支付单id
+     * @param message    重复提交时的提示
+     */
+    public void markCompleted(Long payOrderId, String message) {
+        completed.put(payOrderId, message);
+    }
+
+    /**
+     * 开始支付，同一支付单已在支付中时立即拒绝
+     *
+     * @param payOrderId 支付单id
+     */
+    public void begin(Long payOrderId) {
+        if (!paying.add(payOrderId)) {
+            throw new BizIllegalException("支付处理中，请勿重复提交");
+        }
+    }
+
+    /**
+     * 结束支付，必须与 begin 成对调用
+     *
+     * @param payOrderId 支付单id
+     */
+    public void end(Long payOrderId) {
+        paying.remove(payOrderId);
+    }
+}
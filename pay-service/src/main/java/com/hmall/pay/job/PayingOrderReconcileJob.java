@@ -0,0 +1,30 @@
+package com.hmall.pay.job;
+
+import com.hmall.pay.service.IPayOrderService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 定期对账长时间处于支付中的支付单，扣款结果不确定时支付单不会一直卡在支付中
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PayingOrderReconcileJob {
+
+    private final IPayOrderService payOrderService;
+
+    @Scheduled(initialDelay = 30000, fixedDelayString = "${hm.pay.guard.reconcile-interval:60000}")
+    public void reconcile() {
+        try {
+            int count = payOrderService.reconcilePayingOrders();
+            if (count > 0) {
+                log.info("支付中的支付单对账完成，共{}条", count);
+            }
+        } catch (Exception e) {
+            log.error("支付中的支付单对账失败", e);
+        }
+    }
+}
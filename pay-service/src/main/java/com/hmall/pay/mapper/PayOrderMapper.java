@@ -2,6 +2,10 @@ package com.hmall.pay.mapper;
 
 import com.hmall.pay.domain.po.PayOrder;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
 
 /**
  * <p>
@@ -13,4 +17,13 @@ import com.baomidou.mybatisplus.core.mapper.BaseMapper;
  */
 public interface PayOrderMapper extends BaseMapper<PayOrder> {
 
+    /**
+     * 查询超过指定时间仍处于支付中的支付单，以数据库时间为准
+     *
+     * @param timeoutSeconds 支付中的最长时间
+     * @param limit          最多返回的条数
+     */
+    @Select("SELECT * FROM pay_order WHERE status = 4 AND update_time < NOW() - INTERVAL #{timeoutSeconds} SECOND " +
+            "ORDER BY update_time LIMIT #{limit}")
+    List<PayOrder> selectStalePaying(@Param("timeoutSeconds") long timeoutSeconds, @Param("limit") int limit);
 }
\ No newline at end of file
@@ -18,4 +18,11 @@ public interface IPayOrderService extends IService<PayOrder> {
     String applyPayOrder(PayApplyDTO applyDTO);
 
     void tryPayOrderByBalance(PayOrderFormDTO payOrderFormDTO);
+
+    /**
+     * 对账长时间处于支付中的支付单：用户服务已有扣款流水的标记为支付成功，没有的释放为待支付
+     *
+     * @return 本次处理的支付单数
+     */
+    int reconcilePayingOrders();
 }
\ No newline at end of file
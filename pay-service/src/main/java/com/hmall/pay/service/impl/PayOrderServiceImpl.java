@@ -1,24 +1,33 @@
 package com.hmall.pay.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.core.toolkit.StringUtils;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.hmall.api.client.UserClient;
 import com.hmall.api.client.TradeClient;
+import com.hmall.api.coalesce.TradeClientCoalescer;
+import com.hmall.api.transport.ConcurrencyLimitExceededException;
 import com.hmall.common.exception.BizIllegalException;
 import com.hmall.common.utils.BeanUtils;
 import com.hmall.common.utils.UserContext;
+import com.hmall.pay.cache.PayOrderCache;
+import com.hmall.pay.config.PayGuardProperties;
 import com.hmall.pay.domain.dto.PayApplyDTO;
 import com.hmall.pay.domain.dto.PayOrderFormDTO;
 import com.hmall.pay.domain.po.PayOrder;
+import com.hmall.pay.engine.PaymentGuard;
 import com.hmall.pay.enums.PayStatus;
 import com.hmall.pay.mapper.PayOrderMapper;
 import com.hmall.pay.service.IPayOrderService;
+import feign.FeignException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * <p>
@@ -28,12 +37,17 @@ import java.time.LocalDateTime;
  * @author 虎哥
  * @since 2023-05-16
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class PayOrderServiceImpl extends ServiceImpl<PayOrderMapper, PayOrder> implements IPayOrderService {
 
     private final UserClient userClient;
     private final TradeClient tradeClient;
+    private final ObjectProvider<TradeClientCoalescer> tradeClientCoalescer;
+    private final PaymentGuard paymentGuard;
+    private final PayOrderCache payOrderCache;
+    private final PayGuardProperties guardProperties;
 
     @Override
     public String applyPayOrder(PayApplyDTO applyDTO) {
@@ -44,24 +58,168 @@ public class PayOrderServiceImpl extends ServiceImpl<PayOrderMapper, PayOrder> i
     }
 
     @Override
-    @Transactional
     public void tryPayOrderByBalance(PayOrderFormDTO payOrderFormDTO) {
+        Long id = payOrderFormDTO.getId();
+        // 1.最近已完成的支付单，直接拒绝
+        paymentGuard.checkCompleted(id);
+        // 2.同一支付单的并发提交只放行一个
+        paymentGuard.begin(id);
+        try {
+            payByBalance(payOrderFormDTO);
+        } finally {
+            paymentGuard.end(id);
+        }
+    }
+
+    private void payByBalance(PayOrderFormDTO payOrderFormDTO) {
+        Long id = payOrderFormDTO.getId();
         // 1.查询支付单
-        PayOrder po = getById(payOrderFormDTO.getId());
+        PayOrder po = getById(id);
+        if (po == null) {
+            throw new BizIllegalException("支付单不存在");
+        }
         // 2.判断状态
         if(!PayStatus.WAIT_BUYER_PAY.equalsValue(po.getStatus())){
             // 订单不是未支付，状态异常
+            if (!PayStatus.PAYING.equalsValue(po.getStatus())) {
+                paymentGuard.markCompleted(id, "交易已支付或关闭！");
+            }
+            throw new BizIllegalException("交易已支付或关闭！");
+        }
+        // 3.抢占支付单，在调用用户服务之前把状态改为支付中，其它实例上的重复提交会在这里失败
+        if (!claimPayOrder(id)) {
             throw new BizIllegalException("交易已支付或关闭！");
         }
-        // 3.尝试扣减余额
-        userClient.deductMoney(payOrderFormDTO.getPw(), po.getAmount());
-        // 4.修改支付单状态
-        boolean success = markPayOrderSuccess(payOrderFormDTO.getId(), LocalDateTime.now());
+        payOrderCache.invalidate(po.getBizOrderNo());
+        // 4.以支付单id为幂等键扣减余额
+        try {
+            userClient.deductMoney(payOrderFormDTO.getPw(), po.getAmount(), deductKey(id));
+        } catch (RuntimeException e) {
+            payOrderCache.invalidate(po.getBizOrderNo());
+            if (isRejected(e)) {
+                // 4.1.密码错误、余额不足等明确的拒绝，一定没有扣款，释放支付单，允许重新支付
+                releasePayOrder(id);
+                throw e;
+            }
+            // 4.2.超时、连接断开、5xx等结果不确定，扣款可能已经生效，保持支付中，由对账任务按扣款流水确定结果
+            log.warn("扣款结果不确定，支付单保持支付中等待对账，支付单：{}，原因：{}", id, e.getMessage());
+            throw new BizIllegalException("支付结果确认中，请稍后查看订单状态", e);
+        }
+        // 5.修改支付单状态
+        boolean success = markPayOrderSuccess(id, LocalDateTime.now());
+        payOrderCache.invalidate(po.getBizOrderNo());
         if (!success) {
+            log.error("支付单已扣款但状态不是支付中，需要人工核对，支付单：{}", id);
             throw new BizIllegalException("交易已支付或关闭！");
         }
-        // 5.修改订单状态
-        tradeClient.markOrderPaySuccess(po.getBizOrderNo());
+        paymentGuard.markCompleted(id, "交易已支付或关闭！");
+        // 6.修改订单状态
+        markOrderPaySuccess(po);
+    }
+
+    @Override
+    public int reconcilePayingOrders() {
+        List<PayOrder> orders = baseMapper.selectStalePaying(
+                guardProperties.getPayingTimeout().getSeconds(), guardProperties.getReconcileBatchSize());
+        for (PayOrder po : orders) {
+            try {
+                reconcile(po);
+            } catch (RuntimeException e) {
+                // 单个支付单失败不影响其它支付单，下一轮继续对账
+                log.warn("支付中的支付单对账失败，支付单：{}，原因：{}", po.getId(), e.getMessage());
+            }
+        }
+        return orders.size();
+    }
+
+    private void reconcile(PayOrder po) {
+        Boolean deducted = userClient.isDeducted(deductKey(po.getId()));
+        if (deducted == null) {
+            return;
+        }
+        if (deducted) {
+            // 1.已扣款，补全支付成功
+            boolean success = markPayOrderSuccess(po.getId(), LocalDateTime.now());
+            payOrderCache.invalidate(po.getBizOrderNo());
+            if (success) {
+                log.info("对账确认已扣款，支付单改为支付成功，支付单：{}", po.getId());
+                paymentGuard.markCompleted(po.getId(), "交易已支付或关闭！");
+                markOrderPaySuccess(po);
+            }
+            return;
+        }
+        // 2.超过支付中的最长时间仍没有扣款流水，之前的扣款请求已经结束且没有生效，释放支付单；
+        // 之后用同一个幂等键重新支付，晚到的扣款也不会重复扣减
+        releasePayOrder(po.getId());
+        payOrderCache.invalidate(po.getBizOrderNo());
+        log.info("对账确认未扣款，支付单释放为待支付，支付单：{}", po.getId());
+    }
+
+    /**
+     * 修改订单状态，开启了调用合并时与其它并发的支付合并为一次批量请求
+     */
+    private void markOrderPaySuccess(PayOrder po) {
+        try {
+            TradeClientCoalescer coalescer = tradeClientCoalescer.getIfAvailable();
+            if (coalescer != null) {
+                coalescer.markOrderPaySuccess(po.getBizOrderNo());
+            } else {
+                tradeClient.markOrderPaySuccess(po.getBizOrderNo());
+            }
+        } catch (RuntimeException e) {
+            log.error("支付成功但更新订单状态失败，订单：{}，支付单：{}", po.getBizOrderNo(), po.getId(), e);
+            throw e;
+        }
+    }
+
+    /**
+     * 扣款的幂等键，同一支付单无论重试多少次只扣款一次
+     */
+    private static String deductKey(Long payOrderId) {
+        return "pay:" + payOrderId;
+    }
+
+    /**
+     * 判断调用失败是否是明确的拒绝：用户服务返回了4xx，或请求因并发已满根本没有发出，这两种情况一定没有扣款
+     */
+    private static boolean isRejected(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof FeignException) {
+                int status = ((FeignException) t).status();
+                if (status >= 400 && status < 500) {
+                    return true;
+                }
+            }
+            if (t instanceof ConcurrencyLimitExceededException) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 抢占支付单：待支付 -> 支付中
+     */
+    private boolean claimPayOrder(Long id) {
+        return lambdaUpdate()
+                .set(PayOrder::getStatus, PayStatus.PAYING.getValue())
+                .eq(PayOrder::getId, id)
+                .in(PayOrder::getStatus, PayStatus.NOT_COMMIT.getValue(), PayStatus.WAIT_BUYER_PAY.getValue())
+                .update();
+    }
+
+    /**
+     * 释放支付单：支付中 -> 待支付
+     */
+    private void releasePayOrder(Long id) {
+        lambdaUpdate()
+                .set(PayOrder::getStatus, PayStatus.WAIT_BUYER_PAY.getValue())
+                .eq(PayOrder::getId, id)
+                .eq(PayOrder::getStatus, PayStatus.PAYING.getValue())
+                .update();
     }
 
     public boolean markPayOrderSuccess(Long id, LocalDateTime successTime) {
@@ -70,20 +228,22 @@ public class PayOrderServiceImpl extends ServiceImpl<PayOrderMapper, PayOrder> i
                 .set(PayOrder::getPaySuccessTime, successTime)
                 .eq(PayOrder::getId, id)
                 // 支付状态的乐观锁判断
-                .in(PayOrder::getStatus, PayStatus.NOT_COMMIT.getValue(), PayStatus.WAIT_BUYER_PAY.getValue())
+                .in(PayOrder::getStatus, PayStatus.NOT_COMMIT.getValue(), PayStatus.WAIT_BUYER_PAY.getValue(),
+                        PayStatus.PAYING.getValue())
                 .update();
     }
 
 
     private PayOrder checkIdempotent(PayApplyDTO applyDTO) {
-        // 1.首先查询支付单
-        PayOrder oldOrder = queryByBizOrderNo(applyDTO.getBizOrderNo());
+        // 1.首先查询支付单，前端的重复申请由缓存回答
+        PayOrder oldOrder = payOrderCache.get(applyDTO.getBizOrderNo(), this::queryByBizOrderNo);
         // 2.判断是否存在
         if (oldOrder == null) {
             // 不存在支付单，说明是第一次，写入新的支付单并返回
             PayOrder payOrder = buildPayOrder(applyDTO);
             payOrder.setPayOrderNo(IdWorker.getId());
             save(payOrder);
+            payOrderCache.put(payOrder);
             return payOrder;
         }
         // 3.旧单已经存在，判断是否支付成功
@@ -96,13 +256,24 @@ public class PayOrderServiceImpl extends ServiceImpl<PayOrderMapper, PayOrder> i
             // 已经关闭，抛出异常
             throw new BizIllegalException("订单已关闭");
         }
+        // 4.1.旧单正在支付中，不允许修改
+        if (PayStatus.PAYING.equalsValue(oldOrder.getStatus())) {
+            throw new BizIllegalException("订单正在支付中");
+        }
         // 5.旧单已经存在，判断支付渠道是否一致
         if (!StringUtils.equals(oldOrder.getPayChannelCode(), applyDTO.getPayChannelCode())) {
             // 支付渠道不一致，需要重置数据，然后重新申请支付单
             PayOrder payOrder = buildPayOrder(applyDTO);
-            payOrder.setId(oldOrder.getId());
             payOrder.setQrCodeUrl("");
-            updateById(payOrder);
+            // 缓存中的状态可能已过期，以数据库中的状态为准：只有未提交、待支付的支付单可以切换渠道
+            boolean updated = update(payOrder, new LambdaUpdateWrapper<PayOrder>()
+                    .eq(PayOrder::getId, oldOrder.getId())
+                    .in(PayOrder::getStatus, PayStatus.NOT_COMMIT.getValue(), PayStatus.WAIT_BUYER_PAY.getValue()));
+            payOrderCache.invalidate(oldOrder.getBizOrderNo());
+            if (!updated) {
+                throw new BizIllegalException("订单正在支付中或已支付");
+            }
+            payOrder.setId(oldOrder.getId());
             payOrder.setPayOrderNo(oldOrder.getPayOrderNo());
             return payOrder;
         }
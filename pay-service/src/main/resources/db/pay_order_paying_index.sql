@@ -0,0 +1,2 @@
+-- 对账任务按状态和更新时间查询长时间处于支付中的支付单
+ALTER TABLE pay_order ADD INDEX idx_status_update_time (status, update_time);
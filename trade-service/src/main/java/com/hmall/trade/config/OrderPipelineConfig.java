@@ -0,0 +1,31 @@
+package com.hmall.trade.config;
+
+import com.hmall.common.context.UserContextTaskDecorator;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 下单流水线的线程池，用于和预占库存并行地查询商品
+ */
+@Configuration
+@EnableConfigurationProperties(OrderPipelineProperties.class)
+public class OrderPipelineConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor orderPipelineExecutor(OrderPipelineProperties properties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(properties.getCorePoolSize());
+        executor.setMaxPoolSize(properties.getMaxPoolSize());
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setThreadNamePrefix("order-pipeline-");
+        // 线程池满时退化为串行执行，不丢弃任务
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        // 任务中的Feign调用携带下单用户
+        executor.setTaskDecorator(new UserContextTaskDecorator());
+        return executor;
+    }
+}
@@ -0,0 +1,27 @@
+package com.hmall.trade.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "hm.trade.pipeline")
+public class OrderPipelineProperties {
+    /**
+     * 下单流水线线程池的核心线程数
+     */
+    private int corePoolSize = 8;
+    /**
+     * 下单流水线线程池的最大线程数
+     */
+    private int maxPoolSize = 32;
+    /**
+     * 等待队列长度，队列满时由调用线程执行
+     */
+    private int queueCapacity = 256;
+    /**
+     * 等待并行步骤完成的最长时间
+     */
+    private Duration timeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,43 @@
+package com.hmall.trade.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "hm.trade.outbox")
+public class OutboxProperties {
+    /**
+     * 是否在本实例上运行投递任务
+     */
+    private boolean relayEnabled = true;
+    /**
+     * 每轮认领的事件数
+     */
+    private int batchSize = 100;
+    /**
+     * 每次扫描最多连续投递的轮数，避免积压时长时间占用调度线程
+     */
+    private int maxRounds = 10;
+    /**
+     * 认领后的租约时间，超过该时间未完成投递的事件会被重新认领
+     */
+    private Duration lease = Duration.ofSeconds(30);
+    /**
+     * 最多投递次数，超过后标记为投递失败，需要人工处理
+     */
+    private int maxAttempts = 10;
+    /**
+     * 首次重试的间隔，之后每次翻倍
+     */
+    private Duration initialBackoff = Duration.ofSeconds(1);
+    /**
+     * 重试间隔的上限
+     */
+    private Duration maxBackoff = Duration.ofMinutes(5);
+    /**
+     * 已投递事件的保留时间
+     */
+    private Duration retention = Duration.ofDays(7);
+}
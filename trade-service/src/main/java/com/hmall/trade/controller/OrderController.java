@@ -1,7 +1,10 @@
 package com.hmall.trade.controller;
 
+import com.hmall.common.domain.PageDTO;
 import com.hmall.common.utils.BeanUtils;
 import com.hmall.trade.domain.dto.OrderFormDTO;
+import com.hmall.trade.domain.query.OrderPageQuery;
+import com.hmall.trade.domain.vo.OrderHistoryVO;
 import com.hmall.trade.domain.vo.OrderVO;
 import com.hmall.trade.service.IOrderService;
 import io.swagger.annotations.Api;
@@ -11,6 +14,8 @@ import lombok.RequiredArgsConstructor;
 import org.apache.ibatis.annotations.Param;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @Api(tags = "订单管理接口")
 @RestController
 @RequestMapping("/orders")
@@ -18,6 +23,12 @@ import org.springframework.web.bind.annotation.*;
 public class OrderController {
     private final IOrderService orderService;
 
+    @ApiOperation("分页查询我的订单")
+    @GetMapping
+    public PageDTO<OrderHistoryVO> queryMyOrders(OrderPageQuery query) {
+        return orderService.queryMyOrders(query);
+    }
+
     @ApiOperation("根据id查询订单")
     @GetMapping("{id}")
     public OrderVO queryOrderById(@Param ("订单id")@PathVariable("id") Long orderId) {
@@ -30,6 +41,12 @@ public class OrderController {
         return orderService.createOrder(orderFormDTO);
     }
 
+    @ApiOperation("批量标记订单已支付，仅限服务间调用，网关不对外暴露")
+    @PutMapping("/pay-success")
+    public void markOrdersPaySuccess(@RequestBody List<Long> orderIds) {
+        orderService.markOrdersPaySuccess(orderIds);
+    }
+
     @ApiOperation("标记订单已支付")
     @ApiImplicitParam(name = "orderId", value = "订单id", paramType = "path")
     @PutMapping("/{orderId}")
@@ -0,0 +1,81 @@
+package com.hmall.trade.domain.po;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * <p>
+ * 事务发件箱，与业务数据在同一个本地事务中写入，由后台任务投递给下游服务
+ * </p>
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Accessors(chain = true)
+@TableName("outbox_event")
+public class OutboxEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 事件id
+     */
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 事件类型，决定由哪个处理器投递
+     */
+    private String eventType;
+
+    /**
+     * 幂等键，同一业务动作只会产生一条事件，下游可据此去重
+     */
+    private String eventKey;
+
+    /**
+     * 事件内容，JSON格式
+     */
+    private String payload;
+
+    /**
+     * 状态，1：待投递，2：已投递，3：投递失败
+     */
+    private Integer status;
+
+    /**
+     * 已尝试投递的次数
+     */
+    private Integer attempts;
+
+    /**
+     * 下次可投递的时间，也用作投递中的租约到期时间
+     */
+    private LocalDateTime nextRetryTime;
+
+    /**
+     * 认领该事件的投递批次
+     */
+    private String claimToken;
+
+    /**
+     * 最近一次投递失败的原因
+     */
+    private String lastError;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,15 @@
+package com.hmall.trade.domain.query;
+
+import com.hmall.common.domain.PageQuery;
+import io.swagger.annotations.ApiModel;
+import io.swagger.annotations.ApiModelProperty;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+@EqualsAndHashCode(callSuper = true)
+@Data
+@ApiModel(description = "我的订单分页查询条件")
+public class OrderPageQuery extends PageQuery {
+    @ApiModelProperty("订单状态，为空查询全部")
+    private Integer status;
+}
@@ -0,0 +1,18 @@
+package com.hmall.trade.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum OutboxStatus {
+    PENDING(1, "待投递"),
+    DELIVERED(2, "已投递"),
+    FAILED(3, "投递失败"),
+    ;
+    private final int value;
+    private final String desc;
+
+    OutboxStatus(int value, String desc) {
+        this.value = value;
+        this.desc = desc;
+    }
+}
@@ -0,0 +1,37 @@
+package com.hmall.trade.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.hmall.trade.domain.po.OutboxEvent;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+
+/**
+ * <p>
+ * 事务发件箱 Mapper 接口
+ * </p>
+ */
+public interface OutboxEventMapper extends BaseMapper<OutboxEvent> {
+
+    /**
+     * 认领一批到期的待投递事件，并把下次投递时间推迟到租约到期，多实例部署时各实例认领的事件互不重叠。
+     * 到期判断和租约都以数据库时间为准，不受各实例时钟偏差的影响
+     *
+     * @param token        本次认领的批次标识
+     * @param leaseSeconds 租约时长，投递进程异常退出时事件在租约到期后重新投递
+     * @param limit        最多认领的条数
+     * @return 认领的条数
+     */
+    @Update("UPDATE outbox_event SET claim_token = #{token}, next_retry_time = NOW() + INTERVAL #{leaseSeconds} SECOND, " +
+            "attempts = attempts + 1 " +
+            "WHERE status = 1 AND next_retry_time <= NOW() ORDER BY next_retry_time, id LIMIT #{limit}")
+    int claim(@Param("token") String token, @Param("leaseSeconds") long leaseSeconds, @Param("limit") int limit);
+
+    /**
+     * 删除投递完成超过保留期限的事件
+     */
+    @Delete("DELETE FROM outbox_event WHERE status = 2 AND update_time < #{before} LIMIT #{limit}")
+    int purgeDelivered(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
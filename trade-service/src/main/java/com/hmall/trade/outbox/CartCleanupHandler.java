@@ -0,0 +1,51 @@
+package com.hmall.trade.outbox;
+
+import cn.hutool.json.JSONUtil;
+import com.hmall.api.client.CartClient;
+import com.hmall.api.dto.CartItemsDeleteDTO;
+import com.hmall.trade.domain.po.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 下单后清理购物车，按用户和商品id删除。事件的幂等键随请求发送，购物车服务据此去重，
+ * 重复投递不会删掉用户之后重新加购的商品。一批事件通过一次批量请求投递
+ */
+@Component
+@RequiredArgsConstructor
+public class CartCleanupHandler implements OutboxEventHandler {
+
+    public static final String EVENT_TYPE = "order.cart-cleanup";
+
+    private final CartClient cartClient;
+
+    @Override
+    public String getEventType() {
+        return EVENT_TYPE;
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        cartClient.deleteCartItemsInBatch(Collections.singletonList(toRequest(event)));
+    }
+
+    @Override
+    public Map<Long, Exception> handleBatch(List<OutboxEvent> events) {
+        List<CartItemsDeleteDTO> requests = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            requests.add(toRequest(event));
+        }
+        cartClient.deleteCartItemsInBatch(requests);
+        return Collections.emptyMap();
+    }
+
+    private CartItemsDeleteDTO toRequest(OutboxEvent event) {
+        CartCleanupPayload payload = JSONUtil.toBean(event.getPayload(), CartCleanupPayload.class);
+        return new CartItemsDeleteDTO(payload.getUserId(), payload.getItemIds(), event.getEventKey());
+    }
+}
@@ -0,0 +1,24 @@
+package com.hmall.trade.outbox;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 下单后清理购物车的事件内容
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartCleanupPayload {
+    /**
+     * 下单用户
+     */
+    private Long userId;
+    /**
+     * 要从购物车中删除的商品id
+     */
+    private List<Long> itemIds;
+}
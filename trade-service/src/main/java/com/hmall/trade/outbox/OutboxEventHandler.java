@@ -0,0 +1,48 @@
+package com.hmall.trade.outbox;
+
+import com.hmall.trade.domain.po.OutboxEvent;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 发件箱事件处理器，负责把一种类型的事件投递给下游服务
+ * <p>
+ * 事件至少投递一次，租约到期、重试都可能导致重复投递，处理器必须是幂等的，可以使用 eventKey 去重。
+ * 处理器抛出异常表示投递失败，事件按退避时间重试。测试时注册一个同类型的处理器即可替换真实的下游服务。
+ * </p>
+ */
+public interface OutboxEventHandler {
+
+    /**
+     * @return 处理的事件类型
+     */
+    String getEventType();
+
+    /**
+     * 投递一条事件
+     *
+     * @param event 事件
+     */
+    void handle(OutboxEvent event);
+
+    /**
+     * 投递一批同类型的事件，默认逐条投递，处理器可以覆盖该方法改为调用下游的批量接口。
+     * 抛出异常表示整批失败
+     *
+     * @param events 事件
+     * @return 投递失败的事件id及原因
+     */
+    default Map<Long, Exception> handleBatch(List<OutboxEvent> events) {
+        Map<Long, Exception> failures = new HashMap<>();
+        for (OutboxEvent event : events) {
+            try {
+                handle(event);
+            } catch (Exception e) {
+                failures.put(event.getId(), e);
+            }
+        }
+        return failures;
+    }
+}
@@ -0,0 +1,170 @@
+package com.hmall.trade.outbox;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.hmall.trade.config.OutboxProperties;
+import com.hmall.trade.domain.po.OutboxEvent;
+import com.hmall.trade.enums.OutboxStatus;
+import com.hmall.trade.mapper.OutboxEventMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 发件箱投递任务
+ * <p>
+ * 定时认领一批到期的事件，按类型分组交给对应的处理器批量投递，成功的事件批量标记为已投递，
+ * 失败的事件按指数退避重新排期，超过最大次数后标记为投递失败。
+ * 认领通过一条 UPDATE ... LIMIT 完成，多个实例同时运行不会重复认领。
+ * </p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "hm.trade.outbox", name = "relay-enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private static final int MAX_ERROR_LENGTH = 500;
+    private static final int PURGE_LIMIT = 1000;
+
+    private final OutboxEventMapper outboxMapper;
+    private final OutboxProperties properties;
+    private final Map<String, OutboxEventHandler> handlers = new HashMap<>();
+
+    public OutboxRelay(OutboxEventMapper outboxMapper, OutboxProperties properties, List<OutboxEventHandler> handlers) {
+        this.outboxMapper = outboxMapper;
+        this.properties = properties;
+        for (OutboxEventHandler handler : handlers) {
+            OutboxEventHandler old = this.handlers.put(handler.getEventType(), handler);
+            if (old != null) {
+                throw new IllegalStateException(StrUtil.format("事件类型{}有多个处理器", handler.getEventType()));
+            }
+        }
+    }
+
+    @Scheduled(initialDelay = 5000, fixedDelayString = "${hm.trade.outbox.poll-interval:1000}")
+    public void relay() {
+        // 积压时连续投递多轮，每轮认领满一批才继续
+        for (int i = 0; i < properties.getMaxRounds(); i++) {
+            try {
+                if (relayOnce() < properties.getBatchSize()) {
+                    return;
+                }
+            } catch (Exception e) {
+                log.error("发件箱投递失败", e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 认领并投递一批事件
+     *
+     * @return 本轮认领的事件数
+     */
+    public int relayOnce() {
+        // 1.认领一批到期的事件
+        String token = IdUtil.fastSimpleUUID();
+        int claimed = outboxMapper.claim(token, properties.getLease().getSeconds(), properties.getBatchSize());
+        if (claimed == 0) {
+            return 0;
+        }
+        List<OutboxEvent> events = outboxMapper.selectList(new LambdaQueryWrapper<OutboxEvent>()
+                .eq(OutboxEvent::getClaimToken, token)
+                .eq(OutboxEvent::getStatus, OutboxStatus.PENDING.getValue())
+                .orderByAsc(OutboxEvent::getId));
+
+        // 2.按类型分组，每组交给处理器批量投递
+        Map<String, List<OutboxEvent>> groups = new LinkedHashMap<>();
+        for (OutboxEvent event : events) {
+            groups.computeIfAbsent(event.getEventType(), k -> new ArrayList<>()).add(event);
+        }
+        List<Long> delivered = new ArrayList<>(events.size());
+        for (Map.Entry<String, List<OutboxEvent>> group : groups.entrySet()) {
+            Map<Long, Exception> failures;
+            try {
+                OutboxEventHandler handler = handlers.get(group.getKey());
+                if (handler == null) {
+                    throw new IllegalStateException("没有事件处理器：" + group.getKey());
+                }
+                failures = handler.handleBatch(group.getValue());
+            } catch (Exception e) {
+                failures = new HashMap<>();
+                for (OutboxEvent event : group.getValue()) {
+                    failures.put(event.getId(), e);
+                }
+            }
+            for (OutboxEvent event : group.getValue()) {
+                Exception e = failures.get(event.getId());
+                if (e == null) {
+                    delivered.add(event.getId());
+                } else {
+                    reschedule(event, token, e);
+                }
+            }
+        }
+
+        // 3.批量标记投递成功
+        if (!delivered.isEmpty()) {
+            outboxMapper.update(null, new LambdaUpdateWrapper<OutboxEvent>()
+                    .set(OutboxEvent::getStatus, OutboxStatus.DELIVERED.getValue())
+                    .set(OutboxEvent::getLastError, null)
+                    .in(OutboxEvent::getId, delivered)
+                    .eq(OutboxEvent::getClaimToken, token));
+        }
+        log.debug("发件箱投递完成，认领：{}，成功：{}", claimed, delivered.size());
+        return claimed;
+    }
+
+    /**
+     * 定期删除已投递的事件
+     */
+    @Scheduled(cron = "${hm.trade.outbox.purge-cron:0 17 * * * ?}")
+    public void purge() {
+        LocalDateTime before = LocalDateTime.now().minus(properties.getRetention());
+        int deleted;
+        do {
+            deleted = outboxMapper.purgeDelivered(before, PURGE_LIMIT);
+        } while (deleted >= PURGE_LIMIT);
+    }
+
+    private void reschedule(OutboxEvent event, String token, Exception e) {
+        // 认领时已累加投递次数
+        int attempts = event.getAttempts();
+        boolean exhausted = attempts >= properties.getMaxAttempts();
+        OutboxStatus status = exhausted ? OutboxStatus.FAILED : OutboxStatus.PENDING;
+        outboxMapper.update(null, new LambdaUpdateWrapper<OutboxEvent>()
+                .set(OutboxEvent::getStatus, status.getValue())
+                // 与认领一样以数据库时间排期
+                .setSql("next_retry_time = NOW() + INTERVAL " + backoff(attempts).getSeconds() + " SECOND")
+                .set(OutboxEvent::getLastError, StrUtil.maxLength(String.valueOf(e.getMessage()), MAX_ERROR_LENGTH))
+                .eq(OutboxEvent::getId, event.getId())
+                .eq(OutboxEvent::getClaimToken, token));
+        if (exhausted) {
+            log.error("发件箱事件投递失败，已达最大次数，id：{}，类型：{}，幂等键：{}",
+                    event.getId(), event.getEventType(), event.getEventKey(), e);
+        } else {
+            log.warn("发件箱事件投递失败，第{}次，id：{}，类型：{}，原因：{}",
+                    attempts, event.getId(), event.getEventType(), e.getMessage());
+        }
+    }
+
+    private Duration backoff(int attempts) {
+        Duration max = properties.getMaxBackoff();
+        Duration backoff = properties.getInitialBackoff();
+        for (int i = 1; i < attempts && backoff.compareTo(max) < 0; i++) {
+            backoff = backoff.multipliedBy(2);
+        }
+        return backoff.compareTo(max) > 0 ? max : backoff;
+    }
+}
@@ -0,0 +1,30 @@
+package com.hmall.trade.outbox;
+
+import cn.hutool.json.JSONUtil;
+import com.hmall.api.client.ItemClient;
+import com.hmall.trade.domain.po.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * 下单失败且同步取消库存预占也失败时，由发件箱重试取消。按预占id取消，重复投递没有副作用
+ */
+@Component
+@RequiredArgsConstructor
+public class StockReleaseHandler implements OutboxEventHandler {
+
+    public static final String EVENT_TYPE = "order.stock-release";
+
+    private final ItemClient itemClient;
+
+    @Override
+    public String getEventType() {
+        return EVENT_TYPE;
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        StockReleasePayload payload = JSONUtil.toBean(event.getPayload(), StockReleasePayload.class);
+        itemClient.cancelReservation(payload.getReservationId());
+    }
+}
@@ -0,0 +1,18 @@
+package com.hmall.trade.outbox;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 下单失败后取消库存预占的事件内容
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockReleasePayload {
+    /**
+     * 库存预占id
+     */
+    private String reservationId;
+}
@@ -3,6 +3,11 @@ package com.hmall.trade.service;
 import com.hmall.trade.domain.dto.OrderFormDTO;
 import com.hmall.trade.domain.po.Order;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.hmall.common.domain.PageDTO;
+import com.hmall.trade.domain.query.OrderPageQuery;
+import com.hmall.trade.domain.vo.OrderHistoryVO;
+
+import java.util.Collection;
 
 /**
  * <p>
@@ -17,4 +22,8 @@ public interface IOrderService extends IService<Order> {
     Long createOrder(OrderFormDTO orderFormDTO);
 
     void markOrderPaySuccess(Long orderId);
+
+    void markOrdersPaySuccess(Collection<Long> orderIds);
+
+    PageDTO<OrderHistoryVO> queryMyOrders(OrderPageQuery query);
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.hmall.trade.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.hmall.trade.domain.po.OutboxEvent;
+
+/**
+ * <p>
+ * 事务发件箱 服务类
+ * </p>
+ */
+public interface IOutboxEventService extends IService<OutboxEvent> {
+
+    /**
+     * 写入一条待投递事件，需要在业务数据所在的事务中调用
+     *
+     * @param eventType 事件类型
+     * @param eventKey  幂等键
+     * @param payload   事件内容，序列化为JSON
+     */
+    void append(String eventType, String eventKey, Object payload);
+}
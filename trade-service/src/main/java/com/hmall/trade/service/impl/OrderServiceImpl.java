@@ -1,28 +1,55 @@
 package com.hmall.trade.service.impl;
 
+import cn.hutool.core.util.StrUtil;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.baomidou.mybatisplus.extension.conditions.query.LambdaQueryChainWrapper;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hmall.common.domain.PageDTO;
 import com.hmall.common.exception.BadRequestException;
+import com.hmall.common.exception.BizIllegalException;
+import com.hmall.common.exception.TooManyRequestsException;
+import com.hmall.common.utils.BeanUtils;
+import com.hmall.common.utils.CollUtils;
 import com.hmall.common.utils.UserContext;
+import com.hmall.api.cache.ItemCache;
 import com.hmall.api.client.ItemClient;
-import com.hmall.api.client.CartClient;
 import com.hmall.api.dto.ItemDTO;
 import com.hmall.api.dto.OrderDetailDTO;
-import com.hmall.api.dto.OrderDetailDTO;
+import com.hmall.api.dto.StockReserveResultDTO;
+import com.hmall.api.transport.ConcurrencyLimitExceededException;
+import com.hmall.trade.config.OrderPipelineProperties;
 import com.hmall.trade.domain.dto.OrderFormDTO;
 import com.hmall.trade.domain.po.Order;
 import com.hmall.trade.domain.po.OrderDetail;
+import com.hmall.trade.domain.query.OrderPageQuery;
+import com.hmall.trade.domain.vo.OrderDetailVO;
+import com.hmall.trade.domain.vo.OrderHistoryVO;
 import com.hmall.trade.mapper.OrderMapper;
+import com.hmall.trade.outbox.CartCleanupHandler;
+import com.hmall.trade.outbox.CartCleanupPayload;
+import com.hmall.trade.outbox.StockReleaseHandler;
+import com.hmall.trade.outbox.StockReleasePayload;
 import com.hmall.trade.service.IOrderDetailService;
 import com.hmall.trade.service.IOrderService;
+import com.hmall.trade.service.IOutboxEventService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -33,66 +60,210 @@ import java.util.stream.Collectors;
  * @author 虎哥
  * @since 2023-05-05
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class OrderServiceImpl extends ServiceImpl<OrderMapper, Order> implements IOrderService {
 
     private final ItemClient itemClient;
-    private final CartClient cartClient;
+    private final ItemCache itemCache;
     private final IOrderDetailService detailService;
+    private final IOutboxEventService outboxEventService;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor orderPipelineExecutor;
+    private final OrderPipelineProperties pipelineProperties;
 
     @Override
-    @Transactional
     public Long createOrder(OrderFormDTO orderFormDTO) {
-        // 1.订单数据
-        Order order = new Order();
-        // 1.1.查询商品
+        Long userId = UserContext.getUser();
+        // 1.获取商品id和数量的Map
         List<OrderDetailDTO> detailDTOS = orderFormDTO.getDetails();
-        // 1.2.获取商品id和数量的Map
         Map<Long, Integer> itemNumMap = detailDTOS.stream()
                 .collect(Collectors.toMap(OrderDetailDTO::getItemId, OrderDetailDTO::getNum));
         Set<Long> itemIds = itemNumMap.keySet();
-        // 1.3.查询商品
-        List<ItemDTO> items = itemClient.queryItemByIds(itemIds);
-        if (items == null || items.size() < itemIds.size()) {
-            throw new BadRequestException("商品不存在");
+
+        // 2.预先生成订单id，以它作为库存预占id，预占结果不确定时也能按id取消
+        Order order = new Order();
+        order.setId(IdWorker.getId());
+        String reservationId = "order:" + order.getId();
+
+        // 3.并行执行：线程池中查询商品，当前线程预占库存
+        // 计价场景，价格不会早于 priceFreshness
+        CompletableFuture<List<ItemDTO>> itemsFuture = CompletableFuture.supplyAsync(
+                () -> itemCache.queryItemByIdsForPricing(itemIds), orderPipelineExecutor);
+        StockReserveResultDTO reserveResult;
+        try {
+            reserveResult = itemClient.reserveStock(reservationId, detailDTOS);
+        } catch (RuntimeException e) {
+            if (ConcurrencyLimitExceededException.isCauseOf(e)) {
+                // 对商品服务的并发请求已满，请求没有发出，不需要取消，直接快速失败
+                throw new TooManyRequestsException("下单人数过多，请稍后重试", e);
+            }
+            // 超时等情况下预占可能已经生效，按预占id取消；取消后晚到的预占请求也会被拒绝
+            cancelReservation(reservationId, e);
+            throw e;
         }
-        // 1.4.基于商品价格、购买数量计算商品总价：totalFee
-        int total = 0;
-        for (ItemDTO item : items) {
-            total += item.getPrice() * itemNumMap.get(item.getId());
+        if (reserveResult.isBusy()) {
+            // 库存竞争激烈，商品服务重试后仍未扣减，没有扣减任何库存，提示稍后重试
+            throw new TooManyRequestsException("下单人数过多，请稍后重试");
+        }
+        if (!reserveResult.isSuccess()) {
+            // 预占被拒绝时没有扣减任何库存，整单拒绝，不写入任何订单数据
+            throw new BizIllegalException(buildRejectMessage(awaitQuietly(itemsFuture), reserveResult));
         }
-        order.setTotalFee(total);
-        // 1.5.其它属性
-        order.setPaymentType(orderFormDTO.getPaymentType());
-        order.setUserId(UserContext.getUser());
-        order.setStatus(1);
-        // 1.6.将Order写入数据库order表中
-        save(order);
-
-        // 2.保存订单详情
-        List<OrderDetail> details = buildDetails(order.getId(), items, itemNumMap);
-        detailService.saveBatch(details);
-
-        // 3.清理购物车商品
-        cartClient.deleteCartItemByIds(itemIds);
-
-        // 4.扣减库存
+
         try {
-            itemClient.deductStock(detailDTOS);
-        } catch (Exception e) {
-            throw new RuntimeException("库存不足！");
+            // 4.校验商品
+            List<ItemDTO> items = await(itemsFuture);
+            if (items == null || items.size() < itemIds.size()) {
+                throw new BadRequestException("商品不存在");
+            }
+            // 5.基于商品价格、购买数量计算商品总价：totalFee
+            int total = 0;
+            for (ItemDTO item : items) {
+                total += item.getPrice() * itemNumMap.get(item.getId());
+            }
+            order.setTotalFee(total);
+            // 5.1.其它属性
+            order.setPaymentType(orderFormDTO.getPaymentType());
+            order.setUserId(userId);
+            order.setStatus(1);
+
+            // 6.本地事务只包含订单、订单详情和发件箱的写入，不在持有数据库连接时调用远程服务
+            transactionTemplate.executeWithoutResult(status -> {
+                save(order);
+                detailService.saveBatch(buildDetails(order.getId(), items, itemNumMap));
+                // 6.1.清理购物车由发件箱异步投递，与订单同时提交或回滚
+                outboxEventService.append(CartCleanupHandler.EVENT_TYPE, "order:" + order.getId() + ":cart",
+                        new CartCleanupPayload(userId, new ArrayList<>(itemIds)));
+            });
+        } catch (RuntimeException e) {
+            // 7.下单失败，取消预占的库存
+            cancelReservation(reservationId, e);
+            throw e;
         }
         return order.getId();
     }
 
+    /**
+     * 取消库存预占，同步取消失败时写入发件箱由后台重试，不会因一次调用失败而丢失库存
+     */
+    private void cancelReservation(String reservationId, RuntimeException cause) {
+        try {
+            itemClient.cancelReservation(reservationId);
+        } catch (RuntimeException e) {
+            log.warn("取消库存预占失败，转由发件箱重试，reservationId：{}，原因：{}", reservationId, e.getMessage());
+            try {
+                outboxEventService.append(StockReleaseHandler.EVENT_TYPE, reservationId + ":release",
+                        new StockReleasePayload(reservationId));
+            } catch (RuntimeException ex) {
+                log.error("库存预占需要人工取消，reservationId：{}", reservationId, ex);
+                cause.addSuppressed(ex);
+            }
+        }
+    }
+
     @Override
     public void markOrderPaySuccess(Long orderId) {
-        Order order = new Order();
-        order.setId(orderId);
-        order.setStatus(2);
-        order.setPayTime(LocalDateTime.now());
-        updateById(order);
+        lambdaUpdate()
+                .set(Order::getStatus, 2)
+                .set(Order::getPayTime, LocalDateTime.now())
+                .eq(Order::getId, orderId)
+                // 与批量标记一致，只更新未支付的订单
+                .eq(Order::getStatus, 1)
+                .update();
+    }
+
+    @Override
+    public void markOrdersPaySuccess(Collection<Long> orderIds) {
+        if (CollUtils.isEmpty(orderIds)) {
+            return;
+        }
+        lambdaUpdate()
+                .set(Order::getStatus, 2)
+                .set(Order::getPayTime, LocalDateTime.now())
+                .in(Order::getId, orderIds)
+                // 只更新未支付的订单，已关闭或已支付的订单不受重复通知影响
+                .eq(Order::getStatus, 1)
+                .update();
+    }
+
+    @Override
+    public PageDTO<OrderHistoryVO> queryMyOrders(OrderPageQuery query) {
+        Long userId = UserContext.getUser();
+        // 1.固定按 (create_time, id) 倒序游标分页，与索引 idx_user_create_time_id 的顺序一致，只查询列表需要的列
+        query.setSortBy(null);
+        if (query.getCursor() == null) {
+            query.setCursor("");
+        }
+        LambdaQueryChainWrapper<Order> wrapper = lambdaQuery()
+                .select(Order::getId, Order::getTotalFee, Order::getPaymentType, Order::getStatus, Order::getCreateTime)
+                .eq(Order::getUserId, userId)
+                .eq(query.getStatus() != null, Order::getStatus, query.getStatus());
+        Page<Order> page = query.toMpKeysetPage(wrapper, "create_time", false);
+        PageDTO<OrderHistoryVO> result = PageDTO.ofKeyset(wrapper.page(page), query, OrderHistoryVO.class);
+        List<OrderHistoryVO> orders = result.getList();
+        if (CollUtils.isEmpty(orders)) {
+            return result;
+        }
+        // 2.一次查询出当前页所有订单的商品
+        Set<Long> orderIds = orders.stream().map(OrderHistoryVO::getId).collect(Collectors.toSet());
+        Map<Long, List<OrderDetailVO>> detailMap = detailService.lambdaQuery()
+                .select(OrderDetail::getOrderId, OrderDetail::getItemId, OrderDetail::getNum, OrderDetail::getName,
+                        OrderDetail::getSpec, OrderDetail::getPrice, OrderDetail::getImage)
+                .in(OrderDetail::getOrderId, orderIds)
+                .list()
+                .stream()
+                .collect(Collectors.groupingBy(OrderDetail::getOrderId,
+                        Collectors.mapping(d -> BeanUtils.copyBean(d, OrderDetailVO.class), Collectors.toList())));
+        // 3.组装
+        for (OrderHistoryVO order : orders) {
+            order.setDetails(detailMap.getOrDefault(order.getId(), CollUtils.emptyList()));
+        }
+        return result;
+    }
+
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(pipelineProperties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new BizIllegalException("查询商品超时，请稍后重试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BizIllegalException("下单被中断");
+        }
+    }
+
+    private List<ItemDTO> awaitQuietly(CompletableFuture<List<ItemDTO>> future) {
+        try {
+            List<ItemDTO> items = await(future);
+            return items == null ? new ArrayList<>() : items;
+        } catch (RuntimeException e) {
+            // 只用于拼接提示信息，查询失败时显示商品id
+            return new ArrayList<>();
+        }
+    }
+
+    private String buildRejectMessage(List<ItemDTO> items, StockReserveResultDTO result) {
+        if (result.isConflict()) {
+            // 预占id已被取消，只有同一订单的预占在取消之后才到达时出现
+            return "订单已失效，请重新下单";
+        }
+        if (CollUtils.isNotEmpty(result.getMissingItemIds())) {
+            return "商品不存在";
+        }
+        Map<Long, ItemDTO> itemMap = items.stream().collect(Collectors.toMap(ItemDTO::getId, Function.identity()));
+        String names = result.getShortages().stream()
+                .map(s -> itemMap.containsKey(s.getItemId()) ? itemMap.get(s.getItemId()).getName() : String.valueOf(s.getItemId()))
+                .collect(Collectors.joining("、"));
+        return StrUtil.format("库存不足：{}", names);
     }
 
     private List<OrderDetail> buildDetails(Long orderId, List<ItemDTO> items, Map<Long, Integer> numMap) {
@@ -0,0 +1,30 @@
+package com.hmall.trade.service.impl;
+
+import cn.hutool.json.JSONUtil;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hmall.trade.domain.po.OutboxEvent;
+import com.hmall.trade.enums.OutboxStatus;
+import com.hmall.trade.mapper.OutboxEventMapper;
+import com.hmall.trade.service.IOutboxEventService;
+import org.springframework.stereotype.Service;
+
+/**
+ * <p>
+ * 事务发件箱 服务实现类
+ * </p>
+ */
+@Service
+public class OutboxEventServiceImpl extends ServiceImpl<OutboxEventMapper, OutboxEvent> implements IOutboxEventService {
+
+    @Override
+    public void append(String eventType, String eventKey, Object payload) {
+        OutboxEvent event = new OutboxEvent()
+                .setEventType(eventType)
+                .setEventKey(eventKey)
+                .setPayload(JSONUtil.toJsonStr(payload))
+                .setStatus(OutboxStatus.PENDING.getValue())
+                .setAttempts(0);
+        // next_retry_time 使用数据库默认值，与投递任务同样以数据库时间为准
+        save(event);
+    }
+}
@@ -0,0 +1,19 @@
+-- 我的订单列表：按 (user_id, create_time, id) 游标分页，列表只查询 id、status、payment_type、total_fee、create_time，
+-- 索引显式包含 id 以保证排序与索引顺序一致，并覆盖全部查询列，分页查询不回表
+ALTER TABLE `order`
+    ADD INDEX idx_user_create_time_id (user_id, create_time, id, status, payment_type, total_fee);
+
+-- 一页订单的商品按 order_id 批量查询。MySQL 不支持 ADD INDEX IF NOT EXISTS，
+-- 先查询 information_schema，已有以 order_id 开头的索引时执行空语句跳过
+SET @order_id_index_exists = (SELECT COUNT(*)
+                              FROM information_schema.STATISTICS
+                              WHERE TABLE_SCHEMA = DATABASE()
+                                AND TABLE_NAME = 'order_detail'
+                                AND COLUMN_NAME = 'order_id'
+                                AND SEQ_IN_INDEX = 1);
+SET @ddl = IF(@order_id_index_exists > 0,
+              'DO 0',
+              'ALTER TABLE order_detail ADD INDEX idx_order_id (order_id)');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,20 @@
+-- 事务发件箱，与订单在同一个本地事务中写入，由 OutboxRelay 异步投递
+CREATE TABLE IF NOT EXISTS outbox_event
+(
+    id              BIGINT       NOT NULL AUTO_INCREMENT COMMENT '事件id',
+    event_type      VARCHAR(64)  NOT NULL COMMENT '事件类型',
+    event_key       VARCHAR(128) NOT NULL COMMENT '幂等键',
+    payload         TEXT         NOT NULL COMMENT '事件内容，JSON格式',
+    status          TINYINT      NOT NULL DEFAULT 1 COMMENT '状态，1：待投递，2：已投递，3：投递失败',
+    attempts        INT          NOT NULL DEFAULT 0 COMMENT '已尝试投递的次数',
+    next_retry_time DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '下次可投递的时间',
+    claim_token     VARCHAR(32)  NULL COMMENT '认领该事件的投递批次',
+    last_error      VARCHAR(512) NULL COMMENT '最近一次投递失败的原因',
+    create_time     DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    update_time     DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_event_key (event_key),
+    KEY idx_status_next_retry (status, next_retry_time),
+    KEY idx_claim_token (claim_token)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4 COMMENT '事务发件箱';
@@ -0,0 +1,246 @@
+package com.hmall.trade.outbox;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
+import com.hmall.trade.config.OutboxProperties;
+import com.hmall.trade.domain.po.OutboxEvent;
+import com.hmall.trade.enums.OutboxStatus;
+import com.hmall.trade.mapper.OutboxEventMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StreamUtils;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 发件箱投递任务的测试，下游服务由本地的替身处理器代替，不需要消息中间件和其它服务
+ * <p>
+ * 认领、租约、重试排期依赖 MySQL 的 UPDATE ... LIMIT 和 NOW()，默认使用 Testcontainers 启动 MySQL 8.0，没有Docker时跳过；
+ * 也可以用 -Dhm.test.jdbc-url/-Dhm.test.username/-Dhm.test.password 指定已有的库，测试会重建 outbox_event 表。
+ * </p>
+ */
+class OutboxRelayTest {
+
+    private static final String EVENT_TYPE = "test.stand-in";
+
+    private static MySQLContainer<?> mysql;
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbcTemplate;
+    private static OutboxEventMapper outboxMapper;
+
+    private StandInHandler handler;
+    private OutboxProperties properties;
+    private OutboxRelay relay;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        String url = System.getProperty("hm.test.jdbc-url");
+        String username = System.getProperty("hm.test.username", "root");
+        String password = System.getProperty("hm.test.password", "123");
+        if (url == null) {
+            Assumptions.assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "没有可用的Docker");
+            mysql = new MySQLContainer<>("mysql:8.0.23");
+            mysql.start();
+            url = mysql.getJdbcUrl();
+            username = mysql.getUsername();
+            password = mysql.getPassword();
+        }
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS outbox_event");
+        // 与线上使用同一份建表语句
+        try (InputStream in = OutboxRelayTest.class.getResourceAsStream("/db/outbox_event.sql")) {
+            jdbcTemplate.execute(StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+        }
+
+        // 只初始化 OutboxEventMapper，不启动整个服务
+        MybatisSqlSessionFactoryBean factoryBean = new MybatisSqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setConfiguration(new MybatisConfiguration());
+        SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+        sqlSessionFactory.getConfiguration().addMapper(OutboxEventMapper.class);
+        outboxMapper = new SqlSessionTemplate(sqlSessionFactory).getMapper(OutboxEventMapper.class);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+        if (mysql != null) {
+            mysql.stop();
+        }
+    }
+
+    @BeforeEach
+    void reset() {
+        jdbcTemplate.update("DELETE FROM outbox_event");
+        handler = new StandInHandler();
+        properties = new OutboxProperties();
+        relay = new OutboxRelay(outboxMapper, properties, Collections.singletonList(handler));
+    }
+
+    @Test
+    void deliversPendingEventsAndMarksThemDelivered() {
+        append("order:1:cart");
+        append("order:2:cart");
+        append("order:3:cart");
+
+        assertEquals(3, relay.relayOnce());
+
+        assertEquals(3, handler.delivered.size());
+        assertEquals(3, countByStatus(OutboxStatus.DELIVERED));
+        // 已投递的事件不会再被认领
+        assertEquals(0, relay.relayOnce());
+        assertEquals(3, handler.delivered.size());
+    }
+
+    @Test
+    void failedEventIsRescheduledWithoutBlockingOthers() {
+        append("order:1:cart");
+        append("order:2:cart");
+        handler.failing.add("order:2:cart");
+
+        relay.relayOnce();
+
+        assertEquals(Collections.singletonList("order:1:cart"), handler.delivered);
+        OutboxEvent failed = find("order:2:cart");
+        assertEquals(OutboxStatus.PENDING.getValue(), failed.getStatus());
+        assertEquals(1, failed.getAttempts());
+        assertNotNull(failed.getLastError());
+        // 退避期间不会被重新认领
+        assertTrue(isInFuture("order:2:cart"));
+        assertEquals(0, relay.relayOnce());
+
+        // 退避到期、下游恢复后投递成功
+        makeDue("order:2:cart");
+        handler.failing.clear();
+        assertEquals(1, relay.relayOnce());
+        assertEquals(OutboxStatus.DELIVERED.getValue(), find("order:2:cart").getStatus());
+    }
+
+    @Test
+    void eventIsMarkedFailedAfterMaxAttempts() {
+        properties.setMaxAttempts(2);
+        append("order:1:cart");
+        handler.failing.add("order:1:cart");
+
+        relay.relayOnce();
+        makeDue("order:1:cart");
+        relay.relayOnce();
+
+        OutboxEvent event = find("order:1:cart");
+        assertEquals(OutboxStatus.FAILED.getValue(), event.getStatus());
+        assertEquals(2, event.getAttempts());
+        makeDue("order:1:cart");
+        assertEquals(0, relay.relayOnce());
+    }
+
+    @Test
+    void claimedEventIsRedeliveredOnlyAfterLeaseExpires() {
+        append("order:1:cart");
+        // 另一个实例认领后异常退出，没有回写结果
+        assertEquals(1, outboxMapper.claim("crashed", properties.getLease().getSeconds(), properties.getBatchSize()));
+
+        assertEquals(0, relay.relayOnce());
+        assertTrue(handler.delivered.isEmpty());
+
+        // 租约到期后重新投递
+        makeDue("order:1:cart");
+        assertEquals(1, relay.relayOnce());
+        assertEquals(Collections.singletonList("order:1:cart"), handler.delivered);
+        assertEquals(2, find("order:1:cart").getAttempts());
+    }
+
+    @Test
+    void eventWithoutHandlerIsRescheduled() {
+        outboxMapper.insert(new OutboxEvent()
+                .setEventType("test.unknown")
+                .setEventKey("unknown:1")
+                .setPayload("{}")
+                .setStatus(OutboxStatus.PENDING.getValue())
+                .setAttempts(0));
+        append("order:1:cart");
+
+        assertEquals(2, relay.relayOnce());
+
+        assertEquals(Collections.singletonList("order:1:cart"), handler.delivered);
+        assertEquals(OutboxStatus.PENDING.getValue(), find("unknown:1").getStatus());
+    }
+
+    private void append(String eventKey) {
+        outboxMapper.insert(new OutboxEvent()
+                .setEventType(EVENT_TYPE)
+                .setEventKey(eventKey)
+                .setPayload("{}")
+                .setStatus(OutboxStatus.PENDING.getValue())
+                .setAttempts(0));
+    }
+
+    private OutboxEvent find(String eventKey) {
+        return outboxMapper.selectList(null).stream()
+                .filter(e -> eventKey.equals(e.getEventKey()))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    private int countByStatus(OutboxStatus status) {
+        Integer n = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_event WHERE status = ?",
+                Integer.class, status.getValue());
+        return n == null ? 0 : n;
+    }
+
+    private boolean isInFuture(String eventKey) {
+        Boolean future = jdbcTemplate.queryForObject(
+                "SELECT next_retry_time > NOW() FROM outbox_event WHERE event_key = ?", Boolean.class, eventKey);
+        return Boolean.TRUE.equals(future);
+    }
+
+    private void makeDue(String eventKey) {
+        jdbcTemplate.update("UPDATE outbox_event SET next_retry_time = NOW() - INTERVAL 1 SECOND WHERE event_key = ?",
+                eventKey);
+    }
+
+    /**
+     * 替身处理器，记录投递过的事件，指定的事件投递失败
+     */
+    private static class StandInHandler implements OutboxEventHandler {
+        private final List<String> delivered = new ArrayList<>();
+        private final Set<String> failing = new HashSet<>();
+
+        @Override
+        public String getEventType() {
+            return EVENT_TYPE;
+        }
+
+        @Override
+        public void handle(OutboxEvent event) {
+            if (failing.contains(event.getEventKey())) {
+                throw new IllegalStateException("下游不可用");
+            }
+            delivered.add(event.getEventKey());
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.hmall.user.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(PasswordVerifierProperties.class)
+public class PasswordVerifierConfig {
+}
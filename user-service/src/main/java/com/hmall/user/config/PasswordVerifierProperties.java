@@ -0,0 +1,31 @@
+package com.hmall.user.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "hm.user.password")
+public class PasswordVerifierProperties {
+    /**
+     * 校验密码的线程数，默认为CPU核数
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /**
+     * 等待校验的最大请求数，超过后立即拒绝
+     */
+    private int queueCapacity = 64;
+    /**
+     * 请求等待校验结果的最长时间
+     */
+    private Duration timeout = Duration.ofSeconds(2);
+    /**
+     * 支付授权的有效期，期间同一用户用相同的密码支付不再重新校验BCrypt
+     */
+    private Duration payAuthorizationTtl = Duration.ofMinutes(5);
+    /**
+     * 最多保留的支付授权数量
+     */
+    private long payAuthorizationMaximumSize = 100000;
+}
@@ -0,0 +1,19 @@
+package com.hmall.user.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "hm.user.principal-cache")
+public class UserPrincipalCacheProperties {
+    /**
+     * 最多缓存的用户数量
+     */
+    private long maximumSize = 100000;
+    /**
+     * 缓存时间，多实例部署时其它实例上的冻结操作最晚在这之后生效
+     */
+    private Duration ttl = Duration.ofMinutes(1);
+}
@@ -28,10 +28,18 @@ public class UserController {
     @ApiOperation("扣减余额")
     @ApiImplicitParams({
             @ApiImplicitParam(name = "pw", value = "支付密码"),
-            @ApiImplicitParam(name = "amount", value = "支付金额")
+            @ApiImplicitParam(name = "amount", value = "支付金额"),
+            @ApiImplicitParam(name = "bizKey", value = "业务幂等键，同一个键只扣款一次")
     })
     @PutMapping("/money/deduct")
-    public void deductMoney(@RequestParam("pw") String pw,@RequestParam("amount") Integer amount){
-        userService.deductMoney(pw, amount);
+    public void deductMoney(@RequestParam("pw") String pw,@RequestParam("amount") Integer amount,
+                            @RequestParam(value = "bizKey", required = false) String bizKey){
+        userService.deductMoney(pw, amount, bizKey);
+    }
+
+    @ApiOperation("查询业务幂等键对应的扣款是否已经发生，仅限服务间调用，网关不对外暴露")
+    @GetMapping("/money/journals")
+    public Boolean isDeducted(@RequestParam("bizKey") String bizKey){
+        return userService.isDeducted(bizKey);
     }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.hmall.user.domain.dto;
+
+import lombok.Getter;
+
+/**
+ * 扣减余额的结果
+ */
+@Getter
+public class BalanceDeductResult {
+    /**
+     * 是否扣减成功
+     */
+    private final boolean success;
+    /**
+     * 扣减成功时为扣减后的余额，余额不足时为当前余额，用户不存在时为null
+     */
+    private final Integer balance;
+
+    private BalanceDeductResult(boolean success, Integer balance) {
+        this.success = success;
+        this.balance = balance;
+    }
+
+    public static BalanceDeductResult success(Integer newBalance) {
+        return new BalanceDeductResult(true, newBalance);
+    }
+
+    public static BalanceDeductResult insufficient(Integer balance) {
+        return new BalanceDeductResult(false, balance);
+    }
+
+    public boolean isInsufficient() {
+        return !success;
+    }
+}
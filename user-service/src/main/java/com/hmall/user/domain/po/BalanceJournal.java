@@ -0,0 +1,58 @@
+package com.hmall.user.domain.po;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * <p>
+ * 余额流水表，只追加不修改
+ * </p>
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+@Accessors(chain = true)
+@TableName("balance_journal")
+public class BalanceJournal implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @TableId(value = "id", type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 用户id
+     */
+    private Long userId;
+
+    /**
+     * 变动类型，1：支付扣款
+     */
+    private Integer type;
+
+    /**
+     * 变动金额，单位分，扣款为负数
+     */
+    private Integer amount;
+
+    /**
+     * 变动后的余额，单位分
+     */
+    private Integer balanceAfter;
+
+    /**
+     * 业务幂等键，如支付单号，同一个键只会扣款一次
+     */
+    private String bizKey;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+}
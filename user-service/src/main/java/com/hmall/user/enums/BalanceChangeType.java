@@ -0,0 +1,16 @@
+package com.hmall.user.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum BalanceChangeType {
+    PAY(1, "支付扣款"),
+    ;
+    private final int value;
+    private final String desc;
+
+    BalanceChangeType(int value, String desc) {
+        this.value = value;
+        this.desc = desc;
+    }
+}
@@ -1,8 +1,10 @@
 package com.hmall.user.interceptor;
 
+import com.hmall.common.exception.ForbiddenException;
+import com.hmall.common.exception.UnauthorizedException;
 import com.hmall.common.utils.UserContext;
-import com.hmall.user.domain.po.User;
-import com.hmall.user.service.IUserService;
+import com.hmall.user.security.UserPrincipal;
+import com.hmall.user.security.UserPrincipalCache;
 import com.hmall.user.utils.JwtTool;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
@@ -16,7 +18,7 @@ import javax.servlet.http.HttpServletResponse;
 public class LoginInterceptor implements HandlerInterceptor {
 
     private final JwtTool jwtTool;
-    private final IUserService userService;
+    private final UserPrincipalCache userPrincipalCache;
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
@@ -24,8 +26,14 @@ public class LoginInterceptor implements HandlerInterceptor {
         String token = request.getHeader("authorization");
         // 2.校验token
         Long userId = jwtTool.parseToken(token);
-        // 3.查询用户信息
-        User user = userService.getById(userId);
+        // 3.从缓存中查询用户状态
+        UserPrincipal principal = userPrincipalCache.get(userId);
+        if (principal == null) {
+            throw new UnauthorizedException("用户不存在");
+        }
+        if (principal.isFrozen()) {
+            throw new ForbiddenException("用户被冻结");
+        }
         // 4.保存用户信息到ThreadLocal
         UserContext.setUser(userId);
         // 5.放行
@@ -37,4 +45,4 @@ public class LoginInterceptor implements HandlerInterceptor {
         // 清理用户信息
         UserContext.removeUser();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+package com.hmall.user.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.hmall.user.domain.po.BalanceJournal;
+
+/**
+ * <p>
+ * 余额流水表 Mapper 接口
+ * </p>
+ */
+public interface BalanceJournalMapper extends BaseMapper<BalanceJournal> {
+}
@@ -3,6 +3,7 @@ package com.hmall.user.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.hmall.user.domain.po.User;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
 /**
@@ -14,6 +15,20 @@ import org.apache.ibatis.annotations.Update;
  * @since 2023-05-05
  */
 public interface UserMapper extends BaseMapper<User> {
-    @Update("update user set balance = balance - ${totalFee} where id = #{userId}")
-    void updateMoney(@Param("userId") Long userId, @Param("totalFee") Integer totalFee);
-}
\ No newline at end of file
+    /**
+     * 扣减余额，余额不足时不扣减
+     *
+     * @return 扣减成功返回1，余额不足或用户不存在返回0
+     */
+    @Update("update user set balance = balance - #{amount} where id = #{userId} and balance >= #{amount}")
+    int deductBalance(@Param("userId") Long userId, @Param("amount") int amount);
+
+    @Select("select balance from user where id = #{userId}")
+    Integer selectBalance(@Param("userId") Long userId);
+
+    /**
+     * 查询余额并锁定用户行，同一用户的带幂等键扣款在此串行
+     */
+    @Select("select balance from user where id = #{userId} for update")
+    Integer selectBalanceForUpdate(@Param("userId") Long userId);
+}
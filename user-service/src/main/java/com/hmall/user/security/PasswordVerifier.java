@@ -0,0 +1,123 @@
+package com.hmall.user.security;
+
+import com.hmall.common.exception.TooManyRequestsException;
+import com.hmall.user.config.PasswordVerifierProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 密码校验器
+ * <p>
+ * BCrypt 每次校验要消耗几十毫秒的CPU，放在独立的有界线程池中执行：同时校验的数量不超过线程数，
+ * 排队的请求不超过 queueCapacity，线程池饱和或等待超时时立即返回429，登录高峰不会占满Tomcat线程拖垮其它接口。
+ * </p>
+ */
+@Slf4j
+@Component
+public class PasswordVerifier {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private Timer hashTimer;
+    private Counter rejected;
+
+    public PasswordVerifier(PasswordEncoder passwordEncoder, PasswordVerifierProperties properties,
+                            ObjectProvider<MeterRegistry> meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMillis = properties.getTimeout().toMillis();
+        AtomicInteger index = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(properties.getThreads(), properties.getThreads(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()), r -> {
+            Thread t = new Thread(r, "password-verifier-" + index.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        meterRegistry.ifAvailable(this::bindTo);
+    }
+
+    /**
+     * 校验密码
+     *
+     * @param rawPassword     用户输入的密码
+     * @param encodedPassword 数据库中的密码
+     * @return 是否匹配
+     */
+    public boolean matches(String rawPassword, String encodedPassword) {
+        Future<Boolean> future;
+        try {
+            future = executor.submit(() -> timedMatches(rawPassword, encodedPassword));
+        } catch (RejectedExecutionException e) {
+            if (rejected != null) {
+                rejected.increment();
+            }
+            throw new TooManyRequestsException("系统繁忙，请稍后重试");
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            if (rejected != null) {
+                rejected.increment();
+            }
+            throw new TooManyRequestsException("系统繁忙，请稍后重试");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new TooManyRequestsException("系统繁忙，请稍后重试");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private boolean timedMatches(String rawPassword, String encodedPassword) {
+        long start = System.nanoTime();
+        try {
+            return passwordEncoder.matches(rawPassword, encodedPassword);
+        } finally {
+            if (hashTimer != null) {
+                hashTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void bindTo(MeterRegistry registry) {
+        hashTimer = Timer.builder("hm.user.password.verify")
+                .description("单次BCrypt校验的耗时")
+                .register(registry);
+        rejected = Counter.builder("hm.user.password.rejected")
+                .description("线程池饱和或等待超时而被拒绝的校验次数")
+                .register(registry);
+        Gauge.builder("hm.user.password.queue", executor, e -> e.getQueue().size())
+                .description("等待校验的请求数")
+                .register(registry);
+        Gauge.builder("hm.user.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("正在校验的请求数")
+                .register(registry);
+    }
+}
@@ -0,0 +1,58 @@
+package com.hmall.user.security;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hmall.user.config.PasswordVerifierProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * 短期支付授权
+ * <p>
+ * 用户支付时通过一次BCrypt校验后，记住（用户id -> 支付密码与数据库密码的摘要），有效期内同一用户用相同的密码再次支付，
+ * 只需比较一次SHA-256摘要。数据库中的密码一旦修改，摘要就不再匹配，旧授权自动失效；只保存摘要，不保存明文密码。
+ * </p>
+ */
+@Component
+public class PayAuthorizationCache {
+
+    private final Cache<Long, byte[]> authorizations;
+
+    public PayAuthorizationCache(PasswordVerifierProperties properties) {
+        this.authorizations = Caffeine.newBuilder()
+                .maximumSize(properties.getPayAuthorizationMaximumSize())
+                .expireAfterWrite(properties.getPayAuthorizationTtl())
+                .build();
+    }
+
+    /**
+     * 是否已授权
+     *
+     * @param userId          用户id
+     * @param rawPassword     用户输入的支付密码
+     * @param encodedPassword 数据库中的密码
+     */
+    public boolean isAuthorized(Long userId, String rawPassword, String encodedPassword) {
+        byte[] digest = authorizations.getIfPresent(userId);
+        return digest != null && MessageDigest.isEqual(digest, digest(userId, rawPassword, encodedPassword));
+    }
+
+    /**
+     * 记录一次通过BCrypt校验的授权
+     */
+    public void authorize(Long userId, String rawPassword, String encodedPassword) {
+        authorizations.put(userId, digest(userId, rawPassword, encodedPassword));
+    }
+
+    public void revoke(Long userId) {
+        authorizations.invalidate(userId);
+    }
+
+    private static byte[] digest(Long userId, String rawPassword, String encodedPassword) {
+        String source = userId + ":" + encodedPassword + ":" + rawPassword;
+        return DigestUtil.sha256(source.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,20 @@
+package com.hmall.user.security;
+
+import com.hmall.user.enums.UserStatus;
+import lombok.Getter;
+
+/**
+ * 登录拦截器需要的用户信息
+ */
+@Getter
+public class UserPrincipal {
+    private final Long id;
+    private final UserStatus status;
+    private final boolean frozen;
+
+    public UserPrincipal(Long id, UserStatus status) {
+        this.id = id;
+        this.status = status;
+        this.frozen = status == UserStatus.FROZEN;
+    }
+}
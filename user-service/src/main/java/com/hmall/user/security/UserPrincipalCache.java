@@ -0,0 +1,83 @@
+package com.hmall.user.security;
+
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hmall.user.config.UserPrincipalCacheProperties;
+import com.hmall.user.domain.po.User;
+import com.hmall.user.mapper.UserMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 用户身份缓存
+ * <p>
+ * 缓存用户的id和状态，登录拦截器据此判断用户是否被冻结，不必每个请求都查询数据库。
+ * 本实例上修改用户状态或删除用户后要调用 {@link #invalidateAfterCommit(Long)}，其它实例上的修改在 ttl 之后可见。
+ * </p>
+ */
+@Component
+public class UserPrincipalCache {
+
+    private final UserMapper userMapper;
+    private final Cache<Long, UserPrincipal> cache;
+
+    public UserPrincipalCache(UserMapper userMapper, UserPrincipalCacheProperties properties,
+                              ObjectProvider<MeterRegistry> meterRegistry) {
+        this.userMapper = userMapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache, "userPrincipalCache"));
+    }
+
+    /**
+     * 查询用户身份，未命中时只查询id和状态，不存在的用户不缓存
+     *
+     * @param userId 用户id
+     * @return 用户身份，用户不存在时返回null
+     */
+    public UserPrincipal get(Long userId) {
+        return cache.get(userId, this::load);
+    }
+
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            cache.invalidate(userId);
+        }
+    }
+
+    /**
+     * 在当前事务提交后失效缓存，没有事务时立即失效
+     * <p>
+     * 提交前失效的话，并发请求可能在提交前重新加载旧状态，直到 ttl 之后才能看到修改。
+     * </p>
+     *
+     * @param userId 用户id
+     */
+    public void invalidateAfterCommit(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(userId);
+            }
+        });
+    }
+
+    private UserPrincipal load(Long userId) {
+        User user = userMapper.selectOne(Wrappers.<User>lambdaQuery()
+                .select(User::getId, User::getStatus)
+                .eq(User::getId, userId));
+        return user == null ? null : new UserPrincipal(user.getId(), user.getStatus());
+    }
+}
@@ -0,0 +1,33 @@
+package com.hmall.user.service;
+
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.hmall.user.domain.dto.BalanceDeductResult;
+import com.hmall.user.domain.po.BalanceJournal;
+import com.hmall.user.enums.BalanceChangeType;
+
+/**
+ * <p>
+ * 余额账本 服务类
+ * </p>
+ */
+public interface IBalanceLedgerService extends IService<BalanceJournal> {
+
+    /**
+     * 扣减余额并记录流水
+     *
+     * @param userId 用户id
+     * @param amount 扣减金额，单位分
+     * @param type   变动类型
+     * @param bizKey 业务幂等键，同一个键重复扣款时不再扣减，直接返回成功；为null时不去重
+     * @return 扣减结果，余额不足时不抛出异常
+     */
+    BalanceDeductResult deduct(Long userId, int amount, BalanceChangeType type, String bizKey);
+
+    /**
+     * 查询业务幂等键对应的扣款流水，用于调用方对账
+     *
+     * @param bizKey 业务幂等键
+     * @return 流水，不存在时返回null
+     */
+    BalanceJournal getByBizKey(String bizKey);
+}
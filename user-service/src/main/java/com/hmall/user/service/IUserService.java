@@ -17,5 +17,20 @@ public interface IUserService extends IService<User> {
 
     UserLoginVO login(LoginFormDTO loginFormDTO);
 
-    void deductMoney(String pw, Integer totalFee);
+    /**
+     * 校验支付密码并扣减当前用户的余额；密码错误、余额不足时抛出 BadRequestException，调用方可据此确定没有扣款
+     *
+     * @param pw       支付密码
+     * @param totalFee 扣款金额，单位分
+     * @param bizKey   业务幂等键，同一个键只扣款一次，可以为null
+     */
+    void deductMoney(String pw, Integer totalFee, String bizKey);
+
+    /**
+     * 查询业务幂等键对应的扣款是否已经发生
+     *
+     * @param bizKey 业务幂等键
+     * @return 是否已扣款
+     */
+    boolean isDeducted(String bizKey);
 }
\ No newline at end of file
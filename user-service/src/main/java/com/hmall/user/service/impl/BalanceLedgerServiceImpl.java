@@ -0,0 +1,67 @@
+package com.hmall.user.service.impl;
+
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hmall.common.exception.BadRequestException;
+import com.hmall.user.domain.dto.BalanceDeductResult;
+import com.hmall.user.domain.po.BalanceJournal;
+import com.hmall.user.enums.BalanceChangeType;
+import com.hmall.user.mapper.BalanceJournalMapper;
+import com.hmall.user.mapper.UserMapper;
+import com.hmall.user.service.IBalanceLedgerService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * <p>
+ * 余额账本 服务实现类
+ * </p>
+ */
+@Service
+@RequiredArgsConstructor
+public class BalanceLedgerServiceImpl extends ServiceImpl<BalanceJournalMapper, BalanceJournal> implements IBalanceLedgerService {
+
+    private final UserMapper userMapper;
+
+    @Override
+    @Transactional
+    public BalanceDeductResult deduct(Long userId, int amount, BalanceChangeType type, String bizKey) {
+        if (amount <= 0) {
+            throw new BadRequestException("扣款金额必须大于0");
+        }
+        // 1.有幂等键时先锁定用户行，再判断是否已经扣过款
+        if (bizKey != null) {
+            userMapper.selectBalanceForUpdate(userId);
+            BalanceJournal existing = getByBizKey(bizKey);
+            if (existing != null) {
+                if (!userId.equals(existing.getUserId()) || existing.getAmount() != -amount) {
+                    throw new BadRequestException("扣款单号重复");
+                }
+                return BalanceDeductResult.success(existing.getBalanceAfter());
+            }
+        }
+        // 2.带条件扣减，余额不足时影响行数为0
+        if (userMapper.deductBalance(userId, amount) == 0) {
+            return BalanceDeductResult.insufficient(userMapper.selectBalance(userId));
+        }
+        // 3.查询扣减后的余额，该行已被本事务锁定
+        Integer balance = userMapper.selectBalance(userId);
+        // 4.在同一事务中记录流水，幂等键的唯一索引兜底
+        BalanceJournal journal = new BalanceJournal()
+                .setUserId(userId)
+                .setType(type.getValue())
+                .setAmount(-amount)
+                .setBalanceAfter(balance)
+                .setBizKey(bizKey)
+                .setCreateTime(LocalDateTime.now());
+        save(journal);
+        return BalanceDeductResult.success(balance);
+    }
+
+    @Override
+    public BalanceJournal getByBizKey(String bizKey) {
+        return lambdaQuery().eq(BalanceJournal::getBizKey, bizKey).one();
+    }
+}
@@ -1,24 +1,31 @@
 package com.hmall.user.service.impl;
 
+import cn.hutool.core.convert.Convert;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.hmall.common.exception.BadRequestException;
-import com.hmall.common.exception.BizIllegalException;
 import com.hmall.common.exception.ForbiddenException;
 import com.hmall.common.utils.UserContext;
 import com.hmall.user.config.JwtProperties;
+import com.hmall.user.domain.dto.BalanceDeductResult;
 import com.hmall.user.domain.dto.LoginFormDTO;
 import com.hmall.user.domain.po.User;
 import com.hmall.user.domain.vo.UserLoginVO;
+import com.hmall.user.enums.BalanceChangeType;
 import com.hmall.user.enums.UserStatus;
 import com.hmall.user.mapper.UserMapper;
+import com.hmall.user.security.PasswordVerifier;
+import com.hmall.user.security.PayAuthorizationCache;
+import com.hmall.user.security.UserPrincipalCache;
+import com.hmall.user.service.IBalanceLedgerService;
 import com.hmall.user.service.IUserService;
 import com.hmall.user.utils.JwtTool;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
+import java.io.Serializable;
+
 /**
  * <p>
  * 用户表 服务实现类
@@ -31,7 +38,13 @@ import org.springframework.util.Assert;
 @RequiredArgsConstructor
 public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IUserService {
 
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordVerifier passwordVerifier;
+
+    private final PayAuthorizationCache payAuthorizationCache;
+
+    private final UserPrincipalCache userPrincipalCache;
+
+    private final IBalanceLedgerService balanceLedgerService;
 
     private final JwtTool jwtTool;
 
@@ -49,8 +62,8 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
         if (user.getStatus() == UserStatus.FROZEN) {
             throw new ForbiddenException("用户被冻结");
         }
-        // 4.校验密码
-        if (!passwordEncoder.matches(password, user.getPassword())) {
+        // 4.校验密码，在独立的线程池中执行，繁忙时快速失败
+        if (!passwordVerifier.matches(password, user.getPassword())) {
             throw new BadRequestException("用户名或密码错误");
         }
         // 5.生成TOKEN
@@ -65,21 +78,52 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements IU
     }
 
     @Override
-    public void deductMoney(String pw, Integer totalFee) {
+    public void deductMoney(String pw, Integer totalFee, String bizKey) {
         log.info("开始扣款");
-        // 1.校验密码
-        User user = getById(UserContext.getUser());
-        if(user == null || !passwordEncoder.matches(pw, user.getPassword())){
-            // 密码错误
-            throw new BizIllegalException("用户密码错误");
+        // 1.校验密码，短期内已授权的支付不再校验BCrypt
+        Long userId = UserContext.getUser();
+        User user = getById(userId);
+        if (user == null) {
+            throw new BadRequestException("用户密码错误");
+        }
+        if (!payAuthorizationCache.isAuthorized(userId, pw, user.getPassword())) {
+            if (!passwordVerifier.matches(pw, user.getPassword())) {
+                // 密码错误，返回4xx，调用方据此确定没有扣款
+                throw new BadRequestException("用户密码错误");
+            }
+            payAuthorizationCache.authorize(userId, pw, user.getPassword());
+        }
+
+        // 2.扣款，余额不足时不扣减
+        // 余额不在身份缓存中，扣款不需要失效缓存
+        BalanceDeductResult result = balanceLedgerService.deduct(userId, totalFee, BalanceChangeType.PAY, bizKey);
+        if (result.isInsufficient()) {
+            throw new BadRequestException("余额不足");
+        }
+        log.info("扣款成功，剩余余额：{}", result.getBalance());
+    }
+
+    @Override
+    public boolean isDeducted(String bizKey) {
+        return balanceLedgerService.getByBizKey(bizKey) != null;
+    }
+
+    @Override
+    public boolean updateById(User entity) {
+        boolean updated = super.updateById(entity);
+        // 缓存只包含状态，只有修改状态时才失效
+        if (updated && entity.getStatus() != null) {
+            userPrincipalCache.invalidateAfterCommit(entity.getId());
         }
+        return updated;
+    }
 
-        // 2.尝试扣款
-        try {
-            baseMapper.updateMoney(UserContext.getUser(), totalFee);
-        } catch (Exception e) {
-            throw new RuntimeException("扣款失败，可能是余额不足！", e);
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean removed = super.removeById(id);
+        if (removed) {
+            userPrincipalCache.invalidateAfterCommit(Convert.toLong(id));
         }
-        log.info("扣款成功");
+        return removed;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,15 @@
+-- 余额流水，与余额扣减在同一个本地事务中写入，只追加不修改
+CREATE TABLE IF NOT EXISTS balance_journal
+(
+    id            BIGINT      NOT NULL AUTO_INCREMENT COMMENT '流水id',
+    user_id       BIGINT      NOT NULL COMMENT '用户id',
+    type          TINYINT     NOT NULL COMMENT '变动类型，1：支付扣款',
+    amount        INT         NOT NULL COMMENT '变动金额，单位分，扣款为负数',
+    balance_after INT         NOT NULL COMMENT '变动后的余额，单位分',
+    biz_key       VARCHAR(64) NULL COMMENT '业务幂等键，如支付单号，同一个键只会扣款一次',
+    create_time   DATETIME    NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_biz_key (biz_key),
+    KEY idx_user_create_time (user_id, create_time)
+) ENGINE = InnoDB
+  DEFAULT CHARSET = utf8mb4 COMMENT '余额流水';